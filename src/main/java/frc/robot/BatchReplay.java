@@ -0,0 +1,131 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replays every log in a folder, several at a time, and prints how long each took. Each replay
+ * runs the robot code in its own JVM, since AdvantageKit, the HAL, NetworkTables and the robot's
+ * singletons are all global to a JVM and the HAL's native libraries can't be loaded twice in one
+ * process. Outputs are written next to each log with the usual "_sim" suffix, and each replay's
+ * console output goes to a "_replay.txt" file beside it.
+ *
+ * <p>Run with "./gradlew replayBatch -PlogDir=[folder] -Pjobs=[count]".
+ */
+public final class BatchReplay {
+  private static final long TIMEOUT_MINUTES = 30;
+
+  private BatchReplay() {}
+
+  /**
+   * @param args Folder of logs, then optionally the number of replays to run at once
+   */
+  public static void main(String... args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: BatchReplay <log folder> [jobs]");
+      System.exit(1);
+    }
+    Path folder = Path.of(args[0]);
+    int jobs =
+        args.length > 1
+            ? Integer.parseInt(args[1])
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    List<Path> logs;
+    try (Stream<Path> files = Files.list(folder)) {
+      logs =
+          files
+              .filter(path -> path.toString().endsWith(".wpilog"))
+              .filter(path -> !path.toString().endsWith("_sim.wpilog"))
+              .sorted()
+              .toList();
+    }
+    if (logs.isEmpty()) {
+      System.err.println("No logs found in " + folder.toAbsolutePath());
+      System.exit(1);
+    }
+    System.out.println("Replaying " + logs.size() + " logs, " + jobs + " at a time");
+
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(jobs);
+    List<Future<Result>> futures = new ArrayList<>();
+    for (Path log : logs) {
+      futures.add(executor.submit(() -> replay(log)));
+    }
+    executor.shutdown();
+
+    List<Result> results = new ArrayList<>();
+    for (Future<Result> future : futures) {
+      results.add(future.get());
+    }
+    double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+    double totalSeconds = 0.0;
+    Result slowest = results.get(0);
+    int failures = 0;
+    for (Result result : results) {
+      totalSeconds += result.seconds();
+      if (result.seconds() > slowest.seconds()) {
+        slowest = result;
+      }
+      if (result.exitCode() != 0) {
+        failures++;
+      }
+    }
+    System.out.printf(
+        "%nReplayed %d logs in %.1f s, %.1f s of replay time (%.1fx parallel speedup)%n",
+        results.size(), wallSeconds, totalSeconds, totalSeconds / wallSeconds);
+    System.out.printf(
+        "Mean %.1f s per log, slowest %s at %.1f s%n",
+        totalSeconds / results.size(), slowest.log().getFileName(), slowest.seconds());
+    if (failures > 0) {
+      System.out.println(failures + " replays failed, see their _replay.txt files");
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  /** Replays one log in a new JVM with the same classpath and native libraries as this one. */
+  static Result replay(Path log) throws IOException, InterruptedException {
+    String fileName = log.getFileName().toString();
+    Path output =
+        log.resolveSibling(fileName.substring(0, fileName.length() - 7) + "_replay.txt");
+    ProcessBuilder builder =
+        new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-Djava.library.path=" + System.getProperty("java.library.path"),
+            "-cp",
+            System.getProperty("java.class.path"),
+            Main.class.getName());
+    // AdvantageKit replays the log at this path instead of asking for one
+    builder.environment().put("AKIT_LOG_PATH", log.toAbsolutePath().toString());
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(output.toFile());
+
+    long start = System.nanoTime();
+    Process process = builder.start();
+    process.getOutputStream().close();
+    int exitCode;
+    if (process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+      exitCode = process.exitValue();
+    } else {
+      process.destroyForcibly().waitFor();
+      exitCode = -1;
+    }
+    Result result = new Result(log, (System.nanoTime() - start) / 1e9, exitCode);
+    System.out.printf(
+        "%s: %.1f s%s%n",
+        fileName, result.seconds(), exitCode == 0 ? "" : " (failed, exit code " + exitCode + ")");
+    return result;
+  }
+
+  static record Result(Path log, double seconds, int exitCode) {}
+}
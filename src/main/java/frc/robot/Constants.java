@@ -17,6 +17,8 @@ import edu.wpi.first.wpilibj.RobotBase;
 
 public final class Constants {
   public static final boolean TUNING_MODE = true;
+  public static final boolean LOOP_PROFILING = true;
+  public static final boolean LOG_COMPRESSION = false;
   public static final double LOOP_PERIOD_SECONDS = 0.02;
   public static final RobotType ROBOT = RobotType.WHIPLASH;
 
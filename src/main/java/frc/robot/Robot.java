@@ -21,11 +21,17 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.util.Alert;
 import frc.robot.util.Alert.AlertType;
+import frc.robot.util.BufferedWPILOGWriter;
+import frc.robot.util.FlightRecorder;
+import frc.robot.util.JvmTelemetry;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MappedWPILOGReader;
+import frc.robot.util.MultiRateScheduler;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.NT4Publisher;
-import org.littletonrobotics.junction.wpilog.WPILOGReader;
 import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 
 /**
@@ -48,8 +54,12 @@ public class Robot extends LoggedRobot {
           "Battery voltage is very low, consider turning off the robot or replacing the battery.",
           AlertType.WARNING);
 
+  private final LoopProfiler.Phase multiRatePhase = LoopProfiler.getPhase("MultiRate");
+  private final LoopProfiler.Phase schedulerPhase = LoopProfiler.getPhase("Scheduler");
+
   private Command autonomousCommand;
   private RobotContainer robotContainer;
+  private FlightRecorder flightRecorder;
 
   public Robot() {
     super(Constants.LOOP_PERIOD_SECONDS);
@@ -83,7 +93,7 @@ public class Robot extends LoggedRobot {
     switch (Constants.getMode()) {
       case REAL:
         // Running on a real robot, log to a USB stick ("/U/logs")
-        Logger.addDataReceiver(new WPILOGWriter());
+        Logger.addDataReceiver(new BufferedWPILOGWriter("/U/logs", Constants.LOG_COMPRESSION));
         Logger.addDataReceiver(new NT4Publisher());
         break;
 
@@ -96,13 +106,15 @@ public class Robot extends LoggedRobot {
         // Replaying a log, set up replay source
         setUseTiming(false); // Run as fast as possible
         String logPath = LogFileUtil.findReplayLog();
-        Logger.setReplaySource(new WPILOGReader(logPath));
+        Logger.setReplaySource(new MappedWPILOGReader(logPath));
         Logger.addDataReceiver(new WPILOGWriter(LogFileUtil.addPathSuffix(logPath, "_sim")));
         break;
     }
 
     // Start AdvantageKit logger
     Logger.start();
+    JvmTelemetry.getInstance().trackMainThread();
+    flightRecorder = new FlightRecorder();
 
     // Start timers
     canErrorTimer.reset();
@@ -116,6 +128,7 @@ public class Robot extends LoggedRobot {
     // Instantiate our RobotContainer. This will perform all our button bindings,
     // and put our autonomous chooser on the dashboard.
     robotContainer = new RobotContainer();
+    LoopProfiler.timeCommands();
 
     Shuffleboard.selectTab("Autonomous");
     if (!DriverStation.isFMSAttached()) {
@@ -131,8 +144,15 @@ public class Robot extends LoggedRobot {
     // finished or interrupted commands, and running subsystem periodic() methods.
     // This must be called from the robot's periodic block in order for anything in
     // the Command-based framework to work.
+    LoopProfiler.startLoop();
+    LoggedOutputs.periodic();
+    multiRatePhase.start();
+    MultiRateScheduler.getInstance().periodic();
+    multiRatePhase.stop();
     robotContainer.robotPeriodic();
+    schedulerPhase.start();
     CommandScheduler.getInstance().run();
+    schedulerPhase.stop();
 
     // Check logging fault
     logReceiverQueueAlert.set(Logger.getReceiverQueueFault());
@@ -145,6 +165,9 @@ public class Robot extends LoggedRobot {
         && disabledTimer.hasElapsed(lowBatteryDisabledTime)) {
       lowBatteryAlert.set(true);
     }
+    Alert.periodic();
+
+    LoopProfiler.endLoop();
   }
 
   /** This function is called once when the robot is disabled. */
@@ -13,6 +13,7 @@
 
 package frc.robot;
 
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
@@ -41,11 +42,22 @@ import frc.robot.subsystems.intake.IntakeIO;
 import frc.robot.subsystems.intake.IntakeIOSim;
 import frc.robot.subsystems.intake.IntakeIOTalonFX;
 import frc.robot.subsystems.leds.Leds;
+import frc.robot.subsystems.notetracker.NoteDetectorIO;
+import frc.robot.subsystems.notetracker.NoteDetectorIOLimelight;
+import frc.robot.subsystems.notetracker.NoteDetectorIOSim;
+import frc.robot.subsystems.notetracker.NoteTracker;
+import frc.robot.subsystems.notetracker.NoteTrackerConstants;
 import frc.robot.subsystems.shooter.Shooter;
 import frc.robot.subsystems.shooter.ShooterIO;
 import frc.robot.subsystems.shooter.ShooterIOSim;
 import frc.robot.subsystems.shooter.ShooterIOTalonFX;
+import frc.robot.subsystems.vision.Camera;
+import frc.robot.subsystems.vision.CameraConstants.RobotCameras;
+import frc.robot.subsystems.vision.CameraIOSim;
+import frc.robot.subsystems.vision.CameraType;
 import frc.robot.subsystems.vision.Vision;
+import frc.robot.util.LimelightHttpClient;
+import frc.robot.util.LoopProfiler;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
 public class RobotContainer {
@@ -57,6 +69,12 @@ public class RobotContainer {
   private Shooter shooter;
   private Arm arm;
   private Leds leds;
+  private NoteTracker noteTracker;
+
+  // Limelight REST calls, completed on the main loop
+  private final LimelightHttpClient limelightHttpClient = new LimelightHttpClient();
+
+  private final LoopProfiler.Phase robotStatePhase = LoopProfiler.getPhase("RobotState");
 
   // Controller
   private final CommandXboxController driver = new CommandXboxController(0);
@@ -82,7 +100,9 @@ public class RobotContainer {
           climber = new Climber(new ClimberIOTalonFX());
           shooter = new Shooter(new ShooterIOTalonFX());
           arm = new Arm(new ArmIOTalonFX());
-          leds = new Leds();
+          leds = new Leds(shooter::getSpinUpFraction);
+          noteTracker =
+              new NoteTracker(new NoteDetectorIOLimelight(NoteTrackerConstants.LIMELIGHT_NAME));
           break;
         case ROBOT_SIM:
           drive =
@@ -93,11 +113,17 @@ public class RobotContainer {
                   new ModuleIOSim(),
                   new ModuleIOSim());
           intake = new Intake(new IntakeIOSim());
-          vision = new Vision();
+          vision =
+              new Vision(
+                  simCamera("front-left", RobotCameras.FRONT_LEFT),
+                  simCamera("front-right", RobotCameras.FRONT_RIGHT),
+                  simCamera("back-left", RobotCameras.BACK_LEFT),
+                  simCamera("back-right", RobotCameras.BACK_RIGHT));
           climber = new Climber(new ClimberIOSim());
           shooter = new Shooter(new ShooterIOSim());
           arm = new Arm(new ArmIOSim());
-          leds = new Leds();
+          leds = new Leds(shooter::getSpinUpFraction);
+          noteTracker = new NoteTracker(new NoteDetectorIOSim(RobotState::getOdometryPoseAt));
           break;
       }
     }
@@ -127,6 +153,9 @@ public class RobotContainer {
     if (arm == null) {
       arm = new Arm(new ArmIO() {});
     }
+    if (noteTracker == null) {
+      noteTracker = new NoteTracker(new NoteDetectorIO() {});
+    }
 
     // Configure auto choices.
     autoChooser = new LoggedDashboardChooser<>("Auto Routines");
@@ -186,21 +215,32 @@ public class RobotContainer {
     driver.a().whileTrue(intake.shoot());
   }
 
+  private static Camera simCamera(String name, Transform3d robotToCamera) {
+    CameraType cameraType = CameraType.LIMELIGHT_3G;
+    return new Camera(
+        new CameraIOSim(name, cameraType, robotToCamera, RobotState::getOdometryPoseAt),
+        robotToCamera,
+        cameraType.horizontalFOV,
+        cameraType.verticalFOV,
+        cameraType.primaryXYStandardDeviationCoefficient,
+        cameraType.secondaryXYStandardDeviationCoefficient);
+  }
+
   public void robotPeriodic() {
+    robotStatePhase.start();
     RobotState.periodic(
         drive.getRotation(),
         drive.getYawVelocity(),
         drive.getFieldRelativeVelocity(),
         drive.getModulePositions(),
         vision.getCameras(),
-        vision.getValidTarget(),
-        vision.getPrimaryVisionPoses(),
-        vision.getSecondaryVisionPoses(),
-        vision.getFrameTimestamps(),
+        vision.getObservations(),
         intake.hasNoteLocked(),
         intake.isIntaking(),
         climber.isClimbed());
-    leds.periodic();
+    robotStatePhase.stop();
+    vision.setRobotOrientation(RobotState.getRobotPose().getRotation(), drive.getYawVelocity());
+    limelightHttpClient.poll();
   }
 
   public Command getAutonomousCommand() {
@@ -1,26 +1,45 @@
 package frc.robot;
 
 import com.ctre.phoenix6.CANBus;
-import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
-import edu.wpi.first.math.util.Units;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 import frc.robot.subsystems.drive.drive.DriveConstants;
 import frc.robot.subsystems.vision.Camera;
+import frc.robot.subsystems.vision.CameraConstants.MultiCameraSolverConstants;
+import frc.robot.subsystems.vision.MultiCameraPoseSolver;
+import frc.robot.subsystems.vision.VisionGate;
+import frc.robot.subsystems.vision.VisionGate.RejectReason;
+import frc.robot.subsystems.vision.VisionObservation;
 import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
+import java.util.Arrays;
 import java.util.Optional;
 import lombok.Getter;
 import lombok.Setter;
 import org.littletonrobotics.junction.Logger;
 
 public class RobotState {
+  private static final String RIO_BUS_UTILIZATION_KEY =
+      "RobotState/Signal Data/Rio Bus Utilization";
+  private static final String CANIVORE_BUS_UTILIZATION_KEY =
+      "RobotState/Signal Data/CANivore Bus Utilization";
+  private static final Policy BUS_UTILIZATION_POLICY = Policy.decimated(10);
+
   private static final InterpolatingDoubleTreeMap speakerShotSpeedMap =
       new InterpolatingDoubleTreeMap();
   private static final InterpolatingDoubleTreeMap feedShotSpeedMap =
@@ -45,10 +64,26 @@ public class RobotState {
           false,
           false);
 
+  @Getter private static double robotSpeed = 0.0;
+
   @Getter @Setter private static double speakerFlywheelCompensation = 0.0;
   @Getter @Setter private static double speakerAngleCompensation = 0.0;
 
   private static SwerveDrivePoseEstimator poseEstimator;
+  private static final TimeInterpolatableBuffer<Pose2d> poseHistory =
+      TimeInterpolatableBuffer.createBuffer(MultiCameraSolverConstants.POSE_HISTORY_SECONDS);
+
+  // Wheel odometry alone, never corrected by vision. The simulated modules are exact, so in sim
+  // this is the robot's true pose.
+  private static SwerveDriveOdometry odometry;
+  private static final TimeInterpolatableBuffer<Pose2d> odometryHistory =
+      TimeInterpolatableBuffer.createBuffer(MultiCameraSolverConstants.POSE_HISTORY_SECONDS);
+
+  private static final MultiCameraPoseSolver multiCameraSolver =
+      new MultiCameraPoseSolver(MultiCameraSolverConstants.MAX_OBSERVATIONS);
+  private static final VisionGate multiCameraGate = new VisionGate("Multi Camera");
+  private static boolean[] jointlySolvedCameras = new boolean[] {};
+  private static final Matrix<N3, N1> visionStandardDeviations = new Matrix<>(Nat.N3(), Nat.N1());
 
   private static Rotation2d robotHeading;
   private static SwerveModulePosition[] modulePositions;
@@ -78,6 +113,9 @@ public class RobotState {
     poseEstimator =
         new SwerveDrivePoseEstimator(
             DriveConstants.KINEMATICS, new Rotation2d(), modulePositions, new Pose2d());
+    odometry =
+        new SwerveDriveOdometry(
+            DriveConstants.KINEMATICS, new Rotation2d(), modulePositions, new Pose2d());
   }
 
   public RobotState() {}
@@ -88,46 +126,70 @@ public class RobotState {
       Translation2d robotFieldRelativeVelocity,
       SwerveModulePosition[] modulePositions,
       Camera[] cameras,
-      boolean targetAquired,
-      Optional<Pose3d>[] visionPrimaryPoses,
-      Optional<Pose3d>[] visionSecondaryPoses,
-      double[] visionFrameTimestamps,
+      VisionObservation[] observations,
       boolean hasNote,
       boolean isIntaking,
       boolean isClimbed) {
 
     RobotState.robotHeading = robotHeading;
     RobotState.modulePositions = modulePositions;
+    RobotState.robotSpeed = robotFieldRelativeVelocity.getNorm();
 
-    poseEstimator.updateWithTime(Timer.getFPGATimestamp(), robotHeading, modulePositions);
-
-    if (targetAquired && robotYawVelocity < Units.degreesToRadians(720.0)) {
-      for (int i = 0; i < visionPrimaryPoses.length; i++) {
-        if (visionPrimaryPoses[i].isPresent()) {
-          double xyStddev =
-              cameras[i].getPrimaryXYStandardDeviationCoefficient()
-                  * Math.pow(cameras[i].getAverageDistance(), 2.0)
-                  / cameras[i].getTotalTargets()
-                  * cameras[i].getHorizontalFOV();
-          poseEstimator.addVisionMeasurement(
-              visionPrimaryPoses[i].get().toPose2d(),
-              visionFrameTimestamps[i],
-              VecBuilder.fill(xyStddev, xyStddev, Double.POSITIVE_INFINITY));
-        }
+    double currentTimestamp = Timer.getFPGATimestamp();
+    poseEstimator.updateWithTime(currentTimestamp, robotHeading, modulePositions);
+    poseHistory.addSample(currentTimestamp, poseEstimator.getEstimatedPosition());
+    odometryHistory.addSample(currentTimestamp, odometry.update(robotHeading, modulePositions));
+
+    if (jointlySolvedCameras.length != cameras.length) {
+      jointlySolvedCameras = new boolean[cameras.length];
+    }
+    Arrays.fill(jointlySolvedCameras, false);
+    if (MultiCameraSolverConstants.ENABLED) {
+      solveMultiCamera(cameras, robotYawVelocity, currentTimestamp);
+    }
+
+    for (VisionObservation observation : observations) {
+      if (!observation.isNew()) {
+        continue;
       }
-      for (int i = 0; i < visionSecondaryPoses.length; i++) {
-        if (visionSecondaryPoses[i].isPresent()) {
-          double xyStddev =
-              cameras[i].getSecondaryXYStandardDeviationCoefficient()
-                  * Math.pow(cameras[i].getAverageDistance(), 2.0)
-                  / cameras[i].getTotalTargets()
-                  * cameras[i].getHorizontalFOV();
-          poseEstimator.addVisionMeasurement(
-              visionSecondaryPoses[i].get().toPose2d(),
-              visionFrameTimestamps[i],
-              VecBuilder.fill(xyStddev, xyStddev, Double.POSITIVE_INFINITY));
-        }
+      Camera camera = cameras[observation.getCameraIndex()];
+      observation.markIngested(currentTimestamp);
+      if (observation.isPrimary()) {
+        camera
+            .getLatencyTracker()
+            .recordIngest(
+                currentTimestamp - observation.getDrainTimestamp(),
+                currentTimestamp - observation.getTimestamp());
+      }
+
+      // The latest frame was already fused by the multi camera solver
+      if (jointlySolvedCameras[observation.getCameraIndex()] && observation.isLatestFrame()) {
+        continue;
       }
+      VisionGate gate = camera.getGate();
+      if (gate.evaluate(
+              observation.getPose(),
+              observation.getTimestamp(),
+              observation.getTagCount(),
+              observation.getAverageDistance(),
+              observation.getAmbiguity(),
+              observation.isPrimary()
+                  ? camera.getPrimaryXYStandardDeviationCoefficient()
+                  : camera.getSecondaryXYStandardDeviationCoefficient(),
+              camera.getHorizontalFOV(),
+              robotYawVelocity,
+              poseEstimator.getEstimatedPosition(),
+              currentTimestamp)
+          == RejectReason.ACCEPTED) {
+        addVisionMeasurement(
+            observation.getPose().toPose2d(),
+            observation.getTimestamp(),
+            gate.getXyStandardDeviation(),
+            gate.getThetaStandardDeviation());
+      }
+    }
+    for (Camera camera : cameras) {
+      camera.getGate().logRejectionCounts();
     }
 
     Translation2d speakerPose =
@@ -168,37 +230,206 @@ public class RobotState {
 
     Logger.recordOutput(
         "RobotState/Pose Data/Estimated Pose", poseEstimator.getEstimatedPosition());
-    Logger.recordOutput(
-        "RobotState/Pose Data/Effective Speaker Aiming Pose",
-        new Pose2d(effectiveSpeakerAimingPose, new Rotation2d()));
-    Logger.recordOutput(
-        "RobotState/Pose Data/Effective Feed Aiming Pose",
-        new Pose2d(effectiveFeedAmpAimingPose, new Rotation2d()));
-    Logger.recordOutput(
-        "RobotState/Pose Data/Effective Distance To Speaker", effectiveDistanceToSpeaker);
-    Logger.recordOutput("RobotState/Pose Data/Effective Distance To Amp", effectiveDistanceToAmp);
-    Logger.recordOutput(
-        "RobotState/Signal Data/Rio Bus Utilization",
-        RobotController.getCANStatus().percentBusUtilization);
-    Logger.recordOutput(
-        "RobotState/Signal Data/CANivore Bus Utilization",
-        CANBus.getStatus(DriveConstants.CANIVORE).BusUtilization);
-    Logger.recordOutput(
-        "RobotState/ControlData/Speaker Robot Angle", controlData.speakerRobotAngle());
-    Logger.recordOutput("RobotState/ControlData/Feed Robot Angle", controlData.feedRobotAngle());
-    Logger.recordOutput(
-        "RobotState/ControlData/Speaker Shot Speed", controlData.speakerShotSpeed());
-    Logger.recordOutput("RobotState/ControlData/Speaker Arm Angle", controlData.speakerArmAngle());
-    Logger.recordOutput("RobotState/ControlData/Feed Shot Speed", controlData.feedShotSpeed());
-    Logger.recordOutput("RobotState/ControlData/Feed Arm Angle", controlData.feedArmAngle());
+    // Aiming intermediates are only for tuning, so they are skipped unless debugging
+    if (LoggedOutputs.isDebugEnabled()) {
+      LoggedOutputs.record(
+          "RobotState/Pose Data/Effective Speaker Aiming Pose",
+          new Pose2d(effectiveSpeakerAimingPose, new Rotation2d()),
+          Policy.DEBUG);
+      LoggedOutputs.record(
+          "RobotState/Pose Data/Effective Feed Aiming Pose",
+          new Pose2d(effectiveFeedAmpAimingPose, new Rotation2d()),
+          Policy.DEBUG);
+    }
+    LoggedOutputs.record(
+        "RobotState/Pose Data/Effective Distance To Speaker",
+        effectiveDistanceToSpeaker,
+        Policy.DEBUG);
+    LoggedOutputs.record(
+        "RobotState/Pose Data/Effective Distance To Amp", effectiveDistanceToAmp, Policy.DEBUG);
+    // Bus status is a JNI call for each bus, and only needs to be sampled a few times a second
+    if (LoggedOutputs.isDue(RIO_BUS_UTILIZATION_KEY, BUS_UTILIZATION_POLICY)) {
+      Logger.recordOutput(
+          RIO_BUS_UTILIZATION_KEY, RobotController.getCANStatus().percentBusUtilization);
+    }
+    if (LoggedOutputs.isDue(CANIVORE_BUS_UTILIZATION_KEY, BUS_UTILIZATION_POLICY)) {
+      Logger.recordOutput(
+          CANIVORE_BUS_UTILIZATION_KEY, CANBus.getStatus(DriveConstants.CANIVORE).BusUtilization);
+    }
+    LoggedOutputs.record(
+        "RobotState/ControlData/Speaker Robot Angle",
+        controlData.speakerRobotAngle(),
+        Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "RobotState/ControlData/Feed Robot Angle", controlData.feedRobotAngle(), Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "RobotState/ControlData/Speaker Shot Speed",
+        controlData.speakerShotSpeed(),
+        Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "RobotState/ControlData/Speaker Arm Angle",
+        controlData.speakerArmAngle(),
+        Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "RobotState/ControlData/Feed Shot Speed", controlData.feedShotSpeed(), Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "RobotState/ControlData/Feed Arm Angle", controlData.feedArmAngle(), Policy.ON_CHANGE);
+  }
+
+  /** Adds a vision measurement, reusing one standard deviation vector. */
+  private static void addVisionMeasurement(
+      Pose2d pose, double timestamp, double xyStandardDeviation, double thetaStandardDeviation) {
+    visionStandardDeviations.set(0, 0, xyStandardDeviation);
+    visionStandardDeviations.set(1, 0, xyStandardDeviation);
+    visionStandardDeviations.set(2, 0, thetaStandardDeviation);
+    poseEstimator.addVisionMeasurement(pose, timestamp, visionStandardDeviations);
+  }
+
+  /**
+   * Solves the latest frame from every camera jointly from raw tag observations, and adds the
+   * result as a single measurement. Cameras that contributed are marked so their latest frame is
+   * not also fused on its own. Nothing is marked if the solve fails or is rejected.
+   */
+  private static void solveMultiCamera(
+      Camera[] cameras, double robotYawVelocity, double currentTimestamp) {
+    double referenceTimestamp = Double.NEGATIVE_INFINITY;
+    for (Camera camera : cameras) {
+      double[] frameTimestamps = camera.getFrameTimestamps();
+      if (frameTimestamps.length > 0 && camera.getFiducialIds().length > 0) {
+        referenceTimestamp =
+            Math.max(referenceTimestamp, frameTimestamps[frameTimestamps.length - 1]);
+      }
+    }
+    if (referenceTimestamp == Double.NEGATIVE_INFINITY) {
+      return;
+    }
+    Optional<Pose2d> referencePose = poseHistory.getSample(referenceTimestamp);
+    if (referencePose.isEmpty()) {
+      return;
+    }
+
+    long solveStart = Logger.getRealTimestamp();
+    multiCameraSolver.reset();
+    int cameraCount = 0;
+    double totalDistance = 0.0;
+    for (int c = 0; c < cameras.length; c++) {
+      Camera camera = cameras[c];
+      double[] frameTimestamps = camera.getFrameTimestamps();
+      int latestFrame = frameTimestamps.length - 1;
+      if (latestFrame < 0
+          || referenceTimestamp - frameTimestamps[latestFrame]
+              > MultiCameraSolverConstants.MAX_TIME_SPREAD) {
+        continue;
+      }
+      Optional<Pose2d> framePose = poseHistory.getSample(frameTimestamps[latestFrame]);
+      if (framePose.isEmpty()) {
+        continue;
+      }
+
+      // Move the camera mount into the reference robot frame to undo motion between frames
+      Pose2d robotMotion = framePose.get().relativeTo(referencePose.get());
+      Transform3d robotToCamera = camera.getRobotToCamera();
+      double motionCos = robotMotion.getRotation().getCos();
+      double motionSin = robotMotion.getRotation().getSin();
+      double mountX =
+          robotMotion.getX() + motionCos * robotToCamera.getX() - motionSin * robotToCamera.getY();
+      double mountY =
+          robotMotion.getY() + motionSin * robotToCamera.getX() + motionCos * robotToCamera.getY();
+      double mountYaw =
+          robotMotion.getRotation().getRadians() + robotToCamera.getRotation().getZ();
+
+      int[] fiducialFrameIndices = camera.getFiducialFrameIndices();
+      int[] fiducialIds = camera.getFiducialIds();
+      double[] fiducialTx = camera.getFiducialTx();
+      double[] fiducialTy = camera.getFiducialTy();
+      double[] fiducialDistances = camera.getFiducialDistances();
+      boolean contributed = false;
+      for (int j = 0; j < fiducialIds.length; j++) {
+        if (fiducialFrameIndices[j] == latestFrame
+            && multiCameraSolver.addObservation(
+                fiducialIds[j],
+                fiducialTx[j],
+                fiducialTy[j],
+                mountX,
+                mountY,
+                robotToCamera.getZ(),
+                mountYaw,
+                robotToCamera.getRotation().getY())) {
+          totalDistance += fiducialDistances[j];
+          contributed = true;
+        }
+      }
+      if (contributed) {
+        jointlySolvedCameras[c] = true;
+        cameraCount++;
+      }
+    }
+
+    // A single camera is already solved on its own, only fuse jointly across cameras
+    boolean solved = cameraCount > 1 && multiCameraSolver.solve(referencePose.get());
+    LoggedOutputs.record(
+        "Vision/Multi Camera Solver/Solve Time Micros",
+        Logger.getRealTimestamp() - solveStart,
+        Policy.DEBUG);
+    LoggedOutputs.record("Vision/Multi Camera Solver/Cameras", cameraCount, Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "Vision/Multi Camera Solver/Observations",
+        multiCameraSolver.getObservationCount(),
+        Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "Vision/Multi Camera Solver/Iterations",
+        multiCameraSolver.getIterations(),
+        Policy.ON_CHANGE);
+    LoggedOutputs.record(
+        "Vision/Multi Camera Solver/RMS Error", multiCameraSolver.getRmsError(), Policy.ON_CHANGE);
+    multiCameraGate.logRejectionCounts();
+
+    if (!solved || multiCameraSolver.getRmsError() > MultiCameraSolverConstants.MAX_RMS_ERROR) {
+      Arrays.fill(jointlySolvedCameras, false);
+      return;
+    }
+    Pose2d solvedPose = multiCameraSolver.getPose();
+    Logger.recordOutput("Vision/Multi Camera Solver/Pose", solvedPose);
+    if (multiCameraGate.evaluate(
+            new Pose3d(solvedPose),
+            referenceTimestamp,
+            multiCameraSolver.getObservationCount(),
+            totalDistance / multiCameraSolver.getObservationCount(),
+            0.0,
+            MultiCameraSolverConstants.XY_STANDARD_DEVIATION_COEFFICIENT,
+            1.0,
+            robotYawVelocity,
+            poseEstimator.getEstimatedPosition(),
+            currentTimestamp)
+        == RejectReason.ACCEPTED) {
+      addVisionMeasurement(
+          solvedPose,
+          referenceTimestamp,
+          multiCameraGate.getXyStandardDeviation(),
+          multiCameraGate.getThetaStandardDeviation());
+    } else {
+      Arrays.fill(jointlySolvedCameras, false);
+    }
   }
 
   public static Pose2d getRobotPose() {
     return poseEstimator.getEstimatedPosition();
   }
 
+  /** Returns the estimated pose at a past timestamp, if it is still in the pose history. */
+  public static Optional<Pose2d> getRobotPoseAt(double timestamp) {
+    return poseHistory.getSample(timestamp);
+  }
+
+  /** Returns the pose from wheel odometry alone, at a past timestamp if it is still in history. */
+  public static Pose2d getOdometryPoseAt(double timestamp) {
+    return odometryHistory.getSample(timestamp).orElseGet(odometry::getPoseMeters);
+  }
+
   public static void resetRobotPose(Pose2d pose) {
     poseEstimator.resetPosition(robotHeading, modulePositions, pose);
+    odometry.resetPosition(robotHeading, modulePositions, pose);
+    odometryHistory.clear();
   }
 
   public static record ControlData(
@@ -27,7 +27,6 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
-import frc.robot.RobotState;
 import frc.robot.subsystems.drive.drive.Drive;
 import frc.robot.subsystems.drive.drive.DriveConstants;
 import java.util.function.DoubleSupplier;
@@ -74,17 +73,15 @@ public final class DriveCommands {
           double robotRelativeXVel = linearVelocity.getX() * DriveConstants.MAX_LINEAR_VELOCITY;
           double robotRelativeYVel = linearVelocity.getY() * DriveConstants.MAX_ANGULAR_VELOCITY;
 
+          // Driver forward points away from the alliance wall, so flip the field axes on red
           ChassisSpeeds chassisSpeeds =
-              ChassisSpeeds.fromFieldRelativeSpeeds(
-                  robotRelativeXVel,
-                  robotRelativeYVel,
-                  omega * DriveConstants.MAX_ANGULAR_VELOCITY,
-                  isFlipped
-                      ? RobotState.getRobotPose().getRotation().plus(new Rotation2d(Math.PI))
-                      : RobotState.getRobotPose().getRotation());
+              new ChassisSpeeds(
+                  isFlipped ? -robotRelativeXVel : robotRelativeXVel,
+                  isFlipped ? -robotRelativeYVel : robotRelativeYVel,
+                  omega * DriveConstants.MAX_ANGULAR_VELOCITY);
 
-          // Convert to field relative speeds & send command
-          drive.runVelocity(chassisSpeeds);
+          // Send field relative speeds, the drive rotates them by its heading
+          drive.runFieldRelativeVelocity(chassisSpeeds);
         },
         drive);
   }
@@ -11,10 +11,15 @@ import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
 import frc.robot.RobotState;
 import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
 import frc.robot.util.LoggedTunableNumber;
+import frc.robot.util.LoopProfiler;
 import org.littletonrobotics.junction.Logger;
 
 public class Arm extends SubsystemBase {
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Arm");
+
   private final ArmIOInputsAutoLogged inputs;
   private final ArmIO io;
   private Rotation2d positionSetpoint;
@@ -45,6 +50,7 @@ public class Arm extends SubsystemBase {
    */
   @Override
   public void periodic() {
+    profilerPhase.start();
     io.updateInputs(inputs);
     Logger.processInputs("Arm", inputs);
 
@@ -72,8 +78,9 @@ public class Arm extends SubsystemBase {
         ArmConstants.ARM_MAX_VELOCITY);
 
     Logger.recordOutput("Arm/Position", inputs.armPosition.getRadians());
-    Logger.recordOutput("Arm/Desired Position", positionSetpoint);
-    Logger.recordOutput("Arm/At Setpoint", atSetpoint());
+    LoggedOutputs.record("Arm/Desired Position", positionSetpoint, Policy.ON_CHANGE);
+    LoggedOutputs.record("Arm/At Setpoint", atSetpoint(), Policy.ON_CHANGE);
+    profilerPhase.stop();
   }
 
   /**
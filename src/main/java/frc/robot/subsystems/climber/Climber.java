@@ -7,11 +7,14 @@ package frc.robot.subsystems.climber;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MultiRateScheduler;
 import org.littletonrobotics.junction.Logger;
 
 public class Climber extends SubsystemBase {
   private final ClimberIO io;
   private final ClimberIOInputsAutoLogged inputs;
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Climber");
 
   private boolean isUnlocked;
 
@@ -19,13 +22,16 @@ public class Climber extends SubsystemBase {
   public Climber(ClimberIO io) {
     inputs = new ClimberIOInputsAutoLogged();
     this.io = io;
+    MultiRateScheduler.getInstance()
+        .addPeriodic(this::updateInputs, ClimberConstants.PERIOD_SECONDS);
   }
 
-  /** Updates inputs every 20 ms */
-  @Override
-  public void periodic() {
+  /** Updates inputs at the climber's slower rate */
+  private void updateInputs() {
+    profilerPhase.start();
     io.updateInputs(inputs);
     Logger.processInputs("Climber", inputs);
+    profilerPhase.stop();
   }
 
   public boolean isClimbed() {
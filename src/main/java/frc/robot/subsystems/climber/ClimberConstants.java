@@ -20,6 +20,7 @@ public class ClimberConstants {
   public static final Rotation2d CLIMB_POSITION;
   public static final boolean GRAVITY;
   public static final double HOLD_VOLTAGE;
+  public static final double PERIOD_SECONDS;
 
   static {
     switch (Constants.ROBOT) {
@@ -40,6 +41,7 @@ public class ClimberConstants {
         RELEASE_POSITION = Rotation2d.fromRadians(3.0);
         CLIMB_POSITION = Rotation2d.fromRadians(53);
         HOLD_VOLTAGE = 0.5;
+        PERIOD_SECONDS = 0.04;
         break;
     }
   }
@@ -24,15 +24,42 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import frc.robot.RobotState;
 import frc.robot.subsystems.drive.gyro.GyroIO;
 import frc.robot.subsystems.drive.gyro.GyroIOInputsAutoLogged;
 import frc.robot.subsystems.drive.module.Module;
 import frc.robot.subsystems.drive.module.ModuleIO;
+import frc.robot.util.JvmTelemetry;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MultiRateScheduler;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Getter;
-import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
+/**
+ * Swerve drive. Commands hand the drive a velocity request from the main loop. Without the fast
+ * loop, the request becomes module setpoints that are sent on the next main loop. With it, a
+ * notifier turns the latest request into setpoints on every tick, rotating field relative requests
+ * by the newest gyro sample. That rotation is the only part that runs at the fast rate: setpoints
+ * are optimized against module angles from the last main loop, and heading and trajectory feedback
+ * run in commands on the main loop.
+ *
+ * <p>The newest request always wins and is held until replaced, but the fast loop stops the modules
+ * once a request is older than {@link DriveConstants#REQUEST_TIMEOUT_SECONDS}, so a stalled main
+ * loop can't leave the robot driving. Characterization and disabling clear the request. Requests,
+ * module state and kinematics are shared under one lock, and only the fast loop sends setpoints
+ * while it runs.
+ */
 public class Drive extends SubsystemBase {
+  private static final SwerveModuleState[] NO_STATES = new SwerveModuleState[] {};
+  private static final Policy FIELD_VELOCITY_POLICY = Policy.decimated(5);
+
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Drive");
+
   private final LinearFilter xFilter;
   private final LinearFilter yFilter;
   private double filteredX;
@@ -47,6 +74,14 @@ public class Drive extends SubsystemBase {
 
   private final Module[] modules; // FL, FR, BL, BR
 
+  // Handoff between commands and the fast loop, only touched with the lock held
+  private final boolean fastLoopEnabled;
+  private final Lock fastLoopLock;
+  private ChassisSpeeds requestedSpeeds = null;
+  private boolean requestFieldRelative = false;
+  private double requestTimestamp = 0.0;
+  private Rotation2d headingOffset = new Rotation2d();
+
   public Drive(
       GyroIO gyroIO,
       ModuleIO flModuleIO,
@@ -79,9 +114,36 @@ public class Drive extends SubsystemBase {
 
     // Start threads (no-op for each if no signals have been created)
     PhoenixOdometryThread.getInstance().start();
+    JvmTelemetry.getInstance().trackThread("Odometry", PhoenixOdometryThread.getInstance());
+
+    // Replay has no fast loop, setpoints are sent from the main loop as before
+    fastLoopEnabled = DriveConstants.FAST_LOOP_ENABLED && Constants.getMode() != Mode.REPLAY;
+    fastLoopLock =
+        fastLoopEnabled
+            ? MultiRateScheduler.getInstance()
+                .addFastLoop(
+                    "Drive",
+                    this::runFastLoop,
+                    DriveConstants.FAST_LOOP_PERIOD_SECONDS,
+                    DriveConstants.FAST_LOOP_PHASE_OFFSET_SECONDS)
+            : new ReentrantLock();
   }
 
   public void periodic() {
+    profilerPhase.start();
+    fastLoopLock.lock();
+    try {
+      updateState();
+    } finally {
+      fastLoopLock.unlock();
+    }
+    profilerPhase.stop();
+  }
+
+  private void updateState() {
+    // The estimate was just updated with the last gyro rotation, the fast loop adds this offset
+    headingOffset = RobotState.getRobotPose().getRotation().minus(rawGyroRotation);
+
     DriveConstants.ODOMETRY_LOCK.lock(); // Prevents odometry updates while reading data
     gyroIO.updateInputs(gyroInputs);
     for (var module : modules) {
@@ -93,16 +155,24 @@ public class Drive extends SubsystemBase {
       module.periodic();
     }
 
+    // Only the fast loop sends setpoints while it runs
+    if (!fastLoopEnabled) {
+      for (var module : modules) {
+        module.applySetpoints();
+      }
+    }
+
     // Stop moving when disabled
     if (DriverStation.isDisabled()) {
+      requestedSpeeds = null;
       for (var module : modules) {
         module.stop();
       }
     }
     // Log empty setpoint states when disabled
     if (DriverStation.isDisabled()) {
-      Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-      Logger.recordOutput("SwerveStates/Setpoints Optimized", new SwerveModuleState[] {});
+      LoggedOutputs.record("SwerveStates/Setpoints", NO_STATES, Policy.DEBUG);
+      LoggedOutputs.record("SwerveStates/Setpoints Optimized", NO_STATES, Policy.EVERY_LOOP);
     }
 
     // Update odometry
@@ -143,30 +213,118 @@ public class Drive extends SubsystemBase {
       filteredX = xFilter.calculate(rawFieldRelativeVelocity.getX());
       filteredY = yFilter.calculate(rawFieldRelativeVelocity.getY());
     }
+
+    Logger.recordOutput("SwerveStates/Measured", getModuleStates());
+    if (LoggedOutputs.isDue("Drive/FieldRelativeVelocity", FIELD_VELOCITY_POLICY)) {
+      Logger.recordOutput("Drive/FieldRelativeVelocity", getFieldRelativeVelocity());
+    }
   }
 
   /**
-   * Runs the drive at the desired velocity.
+   * Runs the drive at the desired robot relative velocity.
    *
    * @param speeds Speeds in meters/sec
    */
   public void runVelocity(ChassisSpeeds speeds) {
-    // Calculate module setpoints
-    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, Constants.LOOP_PERIOD_SECONDS);
+    runRequest(speeds, false);
+  }
+
+  /**
+   * Runs the drive at the desired field relative velocity. With the fast loop running, the speeds
+   * are rotated by the newest gyro sample on every tick.
+   *
+   * @param speeds Speeds in meters/sec
+   */
+  public void runFieldRelativeVelocity(ChassisSpeeds speeds) {
+    runRequest(speeds, true);
+  }
+
+  private void runRequest(ChassisSpeeds speeds, boolean fieldRelative) {
+    SwerveModuleState[] setpointStates;
+    SwerveModuleState[] optimizedSetpointStates;
+    fastLoopLock.lock();
+    try {
+      requestedSpeeds = speeds;
+      requestFieldRelative = fieldRelative;
+      requestTimestamp = Logger.getRealTimestamp() / 1e6;
+      ChassisSpeeds robotRelativeSpeeds =
+          fieldRelative
+              ? ChassisSpeeds.fromFieldRelativeSpeeds(
+                  speeds, RobotState.getRobotPose().getRotation())
+              : speeds;
+      setpointStates = calculateSetpoints(robotRelativeSpeeds, Constants.LOOP_PERIOD_SECONDS);
+      // The modules return the optimized states, useful for logging
+      optimizedSetpointStates = runSetpoints(setpointStates);
+    } finally {
+      fastLoopLock.unlock();
+    }
+
+    // Log setpoint states
+    LoggedOutputs.record("SwerveStates/Setpoints", setpointStates, Policy.DEBUG);
+    LoggedOutputs.record(
+        "SwerveStates/Setpoints Optimized", optimizedSetpointStates, Policy.EVERY_LOOP);
+    LoggedOutputs.record("SwerveStates/X Component", filteredX, Policy.DEBUG);
+  }
+
+  /**
+   * Turns the latest request into module setpoints and sends them. Runs on the fast loop's notifier
+   * with its lock held. Only the field relative rotation uses fresh data, the module angles the
+   * setpoints are optimized against are up to one main loop old.
+   */
+  private void runFastLoop(double timestamp) {
+    if (DriverStation.isDisabled()) {
+      return;
+    }
+    if (requestedSpeeds != null) {
+      if (timestamp - requestTimestamp > DriveConstants.REQUEST_TIMEOUT_SECONDS) {
+        requestedSpeeds = null;
+        for (var module : modules) {
+          module.stop();
+        }
+      } else {
+        ChassisSpeeds speeds =
+            requestFieldRelative
+                ? ChassisSpeeds.fromFieldRelativeSpeeds(
+                    requestedSpeeds, getLatestRotation().plus(headingOffset))
+                : requestedSpeeds;
+        runSetpoints(calculateSetpoints(speeds, DriveConstants.FAST_LOOP_PERIOD_SECONDS));
+      }
+    }
+    for (var module : modules) {
+      module.applySetpoints();
+    }
+  }
+
+  /** Returns the newest gyro sample, or the rotation from the last main loop if there is none. */
+  private Rotation2d getLatestRotation() {
+    if (gyroInputs.connected) {
+      double yaw;
+      DriveConstants.ODOMETRY_LOCK.lock();
+      try {
+        yaw = gyroIO.getLatestYawRadians();
+      } finally {
+        DriveConstants.ODOMETRY_LOCK.unlock();
+      }
+      if (!Double.isNaN(yaw)) {
+        return new Rotation2d(yaw);
+      }
+    }
+    return rawGyroRotation;
+  }
+
+  private SwerveModuleState[] calculateSetpoints(ChassisSpeeds speeds, double periodSeconds) {
+    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, periodSeconds);
     SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(discreteSpeeds);
     SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, DriveConstants.MAX_LINEAR_VELOCITY);
+    return setpointStates;
+  }
 
-    // Send setpoints to modules
+  private SwerveModuleState[] runSetpoints(SwerveModuleState[] setpointStates) {
     SwerveModuleState[] optimizedSetpointStates = new SwerveModuleState[4];
     for (int i = 0; i < 4; i++) {
-      // The module returns the optimized state, useful for logging
       optimizedSetpointStates[i] = modules[i].runSetpoint(setpointStates[i]);
     }
-
-    // Log setpoint states
-    Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
-    Logger.recordOutput("SwerveStates/Setpoints Optimized", optimizedSetpointStates);
-    Logger.recordOutput("SwerveStates/X Component", getFieldRelativeVelocity().getX());
+    return optimizedSetpointStates;
   }
 
   /** Stops the drive. */
@@ -183,14 +341,25 @@ public class Drive extends SubsystemBase {
     for (int i = 0; i < 4; i++) {
       headings[i] = getModuleTranslations()[i].getAngle();
     }
-    kinematics.resetHeadings(headings);
+    fastLoopLock.lock();
+    try {
+      kinematics.resetHeadings(headings);
+    } finally {
+      fastLoopLock.unlock();
+    }
     stop();
   }
 
   /** Runs forwards at the commanded voltage. */
   public void runCharacterizationVolts(double volts) {
-    for (int i = 0; i < 4; i++) {
-      modules[i].runCharacterization(volts);
+    fastLoopLock.lock();
+    try {
+      requestedSpeeds = null;
+      for (int i = 0; i < 4; i++) {
+        modules[i].runCharacterization(volts);
+      }
+    } finally {
+      fastLoopLock.unlock();
     }
   }
 
@@ -204,7 +373,6 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the module states (turn angles and drive velocities) for all of the modules. */
-  @AutoLogOutput(key = "SwerveStates/Measured")
   public SwerveModuleState[] getModuleStates() {
     SwerveModuleState[] states = new SwerveModuleState[4];
     for (int i = 0; i < 4; i++) {
@@ -223,7 +391,6 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the field relative velocity in X and Y. */
-  @AutoLogOutput
   public Translation2d getFieldRelativeVelocity() {
     return new Translation2d(filteredX, filteredY);
   }
@@ -24,6 +24,10 @@ public final class DriveConstants {
   public static final Matrix<N3, N1> ODOMETRY_STANDARD_DEVIATIONS;
   public static final double DRIVER_DEADBAND;
   public static final Lock ODOMETRY_LOCK;
+  public static final boolean FAST_LOOP_ENABLED;
+  public static final double FAST_LOOP_PERIOD_SECONDS;
+  public static final double FAST_LOOP_PHASE_OFFSET_SECONDS;
+  public static final double REQUEST_TIMEOUT_SECONDS;
 
   public static final LoggedTunableNumber AUTO_X_KP;
   public static final LoggedTunableNumber AUTO_Y_KP;
@@ -61,6 +65,12 @@ public final class DriveConstants {
         ODOMETRY_STANDARD_DEVIATIONS = VecBuilder.fill(0.0, 0.0, 0.0);
         DRIVER_DEADBAND = 0.025;
         ODOMETRY_LOCK = new ReentrantLock();
+        // Only rotates field relative requests by the newest gyro sample at the fast rate. Module
+        // angles, heading and trajectory feedback still come from the 50 Hz main loop
+        FAST_LOOP_ENABLED = false;
+        FAST_LOOP_PERIOD_SECONDS = 0.005;
+        FAST_LOOP_PHASE_OFFSET_SECONDS = 0.0025;
+        REQUEST_TIMEOUT_SECONDS = 0.1;
 
         AUTO_X_KP.initDefault(1.0);
         AUTO_Y_KP.initDefault(1.0);
@@ -38,6 +38,7 @@ public class PhoenixOdometryThread extends Thread {
   private final Lock signalsLock =
       new ReentrantLock(); // Prevents conflicts when registering signals
   private BaseStatusSignal[] signals = new BaseStatusSignal[0];
+  private double[] latestValues = new double[0];
   private final List<Queue<Double>> queues = new ArrayList<>();
   private final List<Queue<Double>> timestampQueues = new ArrayList<>();
   private boolean isCANFD = false;
@@ -73,6 +74,10 @@ public class PhoenixOdometryThread extends Thread {
       System.arraycopy(signals, 0, newSignals, 0, signals.length);
       newSignals[signals.length] = signal;
       signals = newSignals;
+      double[] newLatestValues = new double[latestValues.length + 1];
+      System.arraycopy(latestValues, 0, newLatestValues, 0, latestValues.length);
+      newLatestValues[latestValues.length] = Double.NaN;
+      latestValues = newLatestValues;
       queues.add(queue);
     } finally {
       signalsLock.unlock();
@@ -92,6 +97,19 @@ public class PhoenixOdometryThread extends Thread {
     return queue;
   }
 
+  /**
+   * Returns the most recent sample of a registered signal without consuming it, or NaN if there is
+   * none yet. The odometry lock must be held.
+   */
+  public double getLatestValue(BaseStatusSignal signal) {
+    for (int i = 0; i < signals.length; i++) {
+      if (signals[i] == signal) {
+        return latestValues[i];
+      }
+    }
+    return Double.NaN;
+  }
+
   @Override
   public void run() {
     while (true) {
@@ -126,7 +144,8 @@ public class PhoenixOdometryThread extends Thread {
           timestamp -= totalLatency / signals.length;
         }
         for (int i = 0; i < signals.length; i++) {
-          queues.get(i).offer(signals[i].getValueAsDouble());
+          latestValues[i] = signals[i].getValueAsDouble();
+          queues.get(i).offer(latestValues[i]);
         }
         for (int i = 0; i < timestampQueues.size(); i++) {
           timestampQueues.get(i).offer(timestamp);
@@ -27,4 +27,12 @@ public interface GyroIO {
   }
 
   public default void updateInputs(GyroIOInputs inputs) {}
+
+  /**
+   * Returns the newest yaw sample in radians without consuming it, or NaN if unavailable. The
+   * odometry lock must be held.
+   */
+  public default double getLatestYawRadians() {
+    return Double.NaN;
+  }
 }
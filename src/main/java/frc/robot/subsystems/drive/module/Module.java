@@ -27,6 +27,7 @@ public class Module {
   private Rotation2d angleSetpoint;
   private Double speedSetpoint;
   private Rotation2d turnRelativeOffset;
+  private double wheelRadius;
 
   private final ModuleIO io;
   private final int index;
@@ -38,6 +39,7 @@ public class Module {
     angleSetpoint = null;
     speedSetpoint = null;
     turnRelativeOffset = null;
+    wheelRadius = ModuleConstants.WHEEL_RADIUS.get();
 
     this.io = io;
     this.index = index;
@@ -49,6 +51,7 @@ public class Module {
 
   public void periodic() {
     Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
+    wheelRadius = ModuleConstants.WHEEL_RADIUS.get();
 
     // Adjust models based on tunable numbers
     LoggedTunableNumber.ifChanged(
@@ -75,17 +78,6 @@ public class Module {
       io.setDrivePosition(0.0);
     }
 
-    if (angleSetpoint != null && DriverStation.isEnabled()) {
-      io.setTurnPositionSetpoint(inputs.turnAbsolutePosition, angleSetpoint);
-
-      if (speedSetpoint != null) {
-        double adjustSpeedSetpoint = speedSetpoint * inputs.turnPositionError.getCos();
-
-        double velocityRadPerSec = adjustSpeedSetpoint / ModuleConstants.WHEEL_RADIUS.get();
-        io.setDriveVelocitySetpoint(inputs.driveVelocityRadPerSec, velocityRadPerSec);
-      }
-    }
-
     int sampleCount = inputs.odometryTimestamps.length;
     odometryPositions = new SwerveModulePosition[sampleCount];
     for (int i = 0; i < sampleCount; i++) {
@@ -98,6 +90,20 @@ public class Module {
     }
   }
 
+  /** Sends the current setpoints to the motors. Safe to call from the drive's fast loop. */
+  public void applySetpoints() {
+    if (angleSetpoint != null && DriverStation.isEnabled()) {
+      io.setTurnPositionSetpoint(inputs.turnAbsolutePosition, angleSetpoint);
+
+      if (speedSetpoint != null) {
+        double adjustSpeedSetpoint = speedSetpoint * inputs.turnPositionError.getCos();
+
+        double velocityRadPerSec = adjustSpeedSetpoint / wheelRadius;
+        io.setDriveVelocitySetpoint(inputs.driveVelocityRadPerSec, velocityRadPerSec);
+      }
+    }
+  }
+
   public SwerveModuleState runSetpoint(SwerveModuleState state) {
     var optimizedState = SwerveModuleState.optimize(state, inputs.turnAbsolutePosition);
 
@@ -4,9 +4,12 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.util.LoopProfiler;
 import org.littletonrobotics.junction.Logger;
 
 public class Intake extends SubsystemBase {
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Intake");
+
   private final IntakeIOInputsAutoLogged inputs;
   private final IntakeIO io;
 
@@ -23,6 +26,7 @@ public class Intake extends SubsystemBase {
 
   @Override
   public void periodic() {
+    profilerPhase.start();
     io.updateInputs(inputs);
     Logger.processInputs("Intake", inputs);
 
@@ -61,6 +65,7 @@ public class Intake extends SubsystemBase {
     }
 
     Logger.recordOutput("Intake/Timer", doubleTimer.get());
+    profilerPhase.stop();
   }
 
   public boolean hasNoteLocked() {
@@ -0,0 +1,105 @@
+package frc.robot.subsystems.leds;
+
+import edu.wpi.first.wpilibj.util.Color;
+import java.util.Arrays;
+
+/**
+ * A pattern for the LED strip, drawn into an array of pixels packed as 0xRRGGBB. Patterns are
+ * immutable records, so two patterns with the same parameters are equal and posting the same one
+ * again is free.
+ */
+public interface LedPattern {
+  LedPattern OFF = solid(Color.kBlack);
+
+  /**
+   * Draws the pattern.
+   *
+   * @param timestamp Seconds, for animated patterns
+   * @param pixels Pixels to fill, one per LED
+   */
+  void draw(double timestamp, int[] pixels);
+
+  static LedPattern solid(Color color) {
+    return new Solid(pack(color));
+  }
+
+  /** Alternates between the color and off, spending half the period on each. */
+  static LedPattern blink(Color color, double periodSeconds) {
+    return new Blink(pack(color), periodSeconds);
+  }
+
+  /** Fades the color in and out with a sine wave. */
+  static LedPattern breathe(Color color, double periodSeconds) {
+    return new Breathe(pack(color), periodSeconds);
+  }
+
+  /** Moves a lit segment along the strip, wrapping around at the end. */
+  static LedPattern chase(Color color, int segmentLength, double pixelsPerSecond) {
+    return new Chase(pack(color), segmentLength, pixelsPerSecond);
+  }
+
+  /**
+   * Lights the strip from the start in proportion to the fraction. The fraction is rounded to whole
+   * pixels here, so patterns that would draw the same are equal.
+   */
+  static LedPattern progress(Color color, double fraction, int length) {
+    double clamped = Math.max(0.0, Math.min(1.0, fraction));
+    return new Progress(pack(color), (int) Math.round(clamped * length));
+  }
+
+  static int pack(Color color) {
+    int red = (int) (color.red * 255);
+    int green = (int) (color.green * 255);
+    int blue = (int) (color.blue * 255);
+    return red << 16 | green << 8 | blue;
+  }
+
+  private static int scale(int rgb, double brightness) {
+    int red = (int) ((rgb >> 16 & 0xFF) * brightness);
+    int green = (int) ((rgb >> 8 & 0xFF) * brightness);
+    int blue = (int) ((rgb & 0xFF) * brightness);
+    return red << 16 | green << 8 | blue;
+  }
+
+  static record Solid(int rgb) implements LedPattern {
+    @Override
+    public void draw(double timestamp, int[] pixels) {
+      Arrays.fill(pixels, rgb);
+    }
+  }
+
+  static record Blink(int rgb, double periodSeconds) implements LedPattern {
+    @Override
+    public void draw(double timestamp, int[] pixels) {
+      boolean on = timestamp % periodSeconds < periodSeconds / 2.0;
+      Arrays.fill(pixels, on ? rgb : 0);
+    }
+  }
+
+  static record Breathe(int rgb, double periodSeconds) implements LedPattern {
+    @Override
+    public void draw(double timestamp, int[] pixels) {
+      double brightness = 0.5 - 0.5 * Math.cos(2.0 * Math.PI * timestamp / periodSeconds);
+      Arrays.fill(pixels, scale(rgb, brightness));
+    }
+  }
+
+  static record Chase(int rgb, int segmentLength, double pixelsPerSecond) implements LedPattern {
+    @Override
+    public void draw(double timestamp, int[] pixels) {
+      int start = (int) (timestamp * pixelsPerSecond) % pixels.length;
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] = Math.floorMod(i - start, pixels.length) < segmentLength ? rgb : 0;
+      }
+    }
+  }
+
+  static record Progress(int rgb, int litPixels) implements LedPattern {
+    @Override
+    public void draw(double timestamp, int[] pixels) {
+      for (int i = 0; i < pixels.length; i++) {
+        pixels[i] = i < litPixels ? rgb : 0;
+      }
+    }
+  }
+}
@@ -9,39 +9,90 @@ package frc.robot.subsystems.leds;
 
 import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
 import frc.robot.RobotState;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MultiRateScheduler;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+import org.littletonrobotics.junction.Logger;
 
+/**
+ * Drives the LED strip. The main loop only picks a pattern for the robot's state and posts it when
+ * it changes. Patterns are drawn on a separate notifier, and the strip is only written when the
+ * drawn pixels differ from what it already shows.
+ */
 public class Leds {
+  private static final int port = 9;
+  private static final int length = 40;
+  private static final double periodSeconds = 0.1;
+  private static final double renderPeriodSeconds = 0.05;
+
   private final AddressableLED leds;
   private final AddressableLEDBuffer buffer;
-  private static final int length = 40;
+  private final DoubleSupplier shooterSpinUp;
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("LEDs");
+  private volatile LedPattern pattern = LedPattern.OFF;
 
-  public Leds() {
-    leds = new AddressableLED(9);
+  // Only touched by the render notifier
+  private final int[] pixels = new int[length];
+  private final int[] shownPixels = new int[length];
+  private Notifier notifier;
+
+  /**
+   * @param shooterSpinUp Fraction of the way the shooter is to its goal speed, or 0 with no goal
+   */
+  public Leds(DoubleSupplier shooterSpinUp) {
+    this.shooterSpinUp = shooterSpinUp;
+    leds = new AddressableLED(port);
     buffer = new AddressableLEDBuffer(length);
     leds.setLength(length);
     leds.setData(buffer);
     leds.start();
+    MultiRateScheduler.getInstance().addPeriodic(this::periodic, periodSeconds);
+    if (Constants.getMode() != Mode.REPLAY) {
+      notifier = new Notifier(this::render);
+      notifier.setName("LEDs");
+      notifier.startPeriodic(renderPeriodSeconds);
+    }
   }
 
   public void periodic() {
-    if (RobotState.getControlData().hasNote()) {
-      solid(Color.kGreen);
+    profilerPhase.start();
+    double spinUp = shooterSpinUp.getAsDouble();
+    if (spinUp > 0.0) {
+      setPattern(LedPattern.progress(Color.kOrange, spinUp, length));
+    } else if (RobotState.getControlData().hasNote()) {
+      setPattern(LedPattern.solid(Color.kGreen));
     } else if (RobotState.getControlData().isIntaking()) {
-      solid(Color.kDarkBlue);
+      setPattern(LedPattern.solid(Color.kDarkBlue));
     } else {
-      solid(Color.kBlack);
+      setPattern(LedPattern.OFF);
     }
+    profilerPhase.stop();
+  }
 
-    leds.setData(buffer);
+  /** Posts a pattern to the render notifier, if it differs from the current one. */
+  public void setPattern(LedPattern pattern) {
+    if (!pattern.equals(this.pattern)) {
+      this.pattern = pattern;
+      Logger.recordOutput("LEDs/Pattern", pattern.toString());
+    }
   }
 
-  private void solid(Color color) {
-    if (color != null) {
-      for (int i = 0; i < length; i++) {
-        buffer.setLED(i, color);
-      }
+  private void render() {
+    pattern.draw(Timer.getFPGATimestamp(), pixels);
+    if (Arrays.equals(pixels, shownPixels)) {
+      return;
     }
+    for (int i = 0; i < length; i++) {
+      buffer.setRGB(i, pixels[i] >> 16 & 0xFF, pixels[i] >> 8 & 0xFF, pixels[i] & 0xFF);
+    }
+    leds.setData(buffer);
+    System.arraycopy(pixels, 0, shownPixels, 0, length);
   }
 }
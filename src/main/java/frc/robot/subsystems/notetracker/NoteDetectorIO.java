@@ -0,0 +1,20 @@
+package frc.robot.subsystems.notetracker;
+
+import org.littletonrobotics.junction.AutoLog;
+
+public interface NoteDetectorIO {
+  @AutoLog
+  public static class NoteDetectorIOInputs {
+    // Every frame received since the last update, oldest first, with capture timestamps
+    public double[] frameTimestamps = new double[] {};
+
+    // Detections from every frame, flattened, with the index of the frame they came from. Angles
+    // are in radians from the camera's principal point, positive right and up
+    public int[] detectionFrameIndices = new int[] {};
+    public int[] detectionClassIds = new int[] {};
+    public double[] detectionTx = new double[] {};
+    public double[] detectionTy = new double[] {};
+  }
+
+  public default void updateInputs(NoteDetectorIOInputs inputs) {}
+}
@@ -0,0 +1,106 @@
+package frc.robot.subsystems.notetracker;
+
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import frc.robot.util.LimelightHelpers;
+import frc.robot.util.LimelightJsonResults;
+import frc.robot.util.LimelightJsonService;
+
+/**
+ * Reads raw neural detector results from a Limelight, including frames with no detections. With
+ * {@link NoteTrackerConstants#USE_JSON_RESULTS} on, the latest frame is read from the JSON dump
+ * instead.
+ */
+public class NoteDetectorIOLimelight implements NoteDetectorIO {
+  private static final int VALUES_PER_DETECTION = 12;
+
+  private final DoubleArraySubscriber detectionSubscriber;
+  private final DoubleSubscriber pipelineLatencySubscriber;
+  private final DoubleSubscriber captureLatencySubscriber;
+  private final LimelightJsonService jsonService;
+  private long lastJsonSequence = 0;
+
+  public NoteDetectorIOLimelight(String name) {
+    NetworkTable table = LimelightHelpers.getLimelightNTTable("limelight-" + name);
+    if (NoteTrackerConstants.USE_JSON_RESULTS) {
+      jsonService = new LimelightJsonService("limelight-" + name);
+      jsonService.start();
+    } else {
+      jsonService = null;
+    }
+    detectionSubscriber =
+        table
+            .getDoubleArrayTopic("rawdetections")
+            .subscribe(
+                new double[] {},
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(NoteTrackerConstants.DETECTION_QUEUE_DEPTH));
+    pipelineLatencySubscriber = table.getDoubleTopic("tl").subscribe(0.0);
+    captureLatencySubscriber = table.getDoubleTopic("cl").subscribe(0.0);
+  }
+
+  @Override
+  public void updateInputs(NoteDetectorIOInputs inputs) {
+    if (jsonService != null) {
+      updateInputsFromJson(inputs);
+      return;
+    }
+
+    TimestampedDoubleArray[] frames = detectionSubscriber.readQueue();
+    // Latency is only published as the latest value, close enough for queued frames
+    double latencySeconds =
+        (pipelineLatencySubscriber.get() + captureLatencySubscriber.get()) / 1e3;
+
+    int detectionCount = 0;
+    for (TimestampedDoubleArray frame : frames) {
+      detectionCount += frame.value.length / VALUES_PER_DETECTION;
+    }
+
+    inputs.frameTimestamps = new double[frames.length];
+    inputs.detectionFrameIndices = new int[detectionCount];
+    inputs.detectionClassIds = new int[detectionCount];
+    inputs.detectionTx = new double[detectionCount];
+    inputs.detectionTy = new double[detectionCount];
+    int detectionIndex = 0;
+    for (int i = 0; i < frames.length; i++) {
+      inputs.frameTimestamps[i] = frames[i].timestamp / 1e6 - latencySeconds;
+      double[] value = frames[i].value;
+      for (int j = 0; j + VALUES_PER_DETECTION <= value.length; j += VALUES_PER_DETECTION) {
+        inputs.detectionFrameIndices[detectionIndex] = i;
+        inputs.detectionClassIds[detectionIndex] = (int) value[j];
+        inputs.detectionTx[detectionIndex] = Units.degreesToRadians(value[j + 1]);
+        inputs.detectionTy[detectionIndex] = Units.degreesToRadians(value[j + 2]);
+        detectionIndex++;
+      }
+    }
+  }
+
+  private void updateInputsFromJson(NoteDetectorIOInputs inputs) {
+    LimelightJsonResults results = jsonService.getLatest();
+    boolean newFrame = results.sequence != lastJsonSequence;
+    lastJsonSequence = results.sequence;
+    int detectionCount = newFrame ? results.detectorCount : 0;
+
+    if (newFrame) {
+      double latencySeconds = (results.latencyPipeline + results.latencyCapture) / 1e3;
+      inputs.frameTimestamps = new double[] {results.receiveMicros / 1e6 - latencySeconds};
+    } else {
+      inputs.frameTimestamps = new double[] {};
+    }
+    // Every detection is from the one frame, index 0
+    inputs.detectionFrameIndices = new int[detectionCount];
+    inputs.detectionClassIds = new int[detectionCount];
+    inputs.detectionTx = new double[detectionCount];
+    inputs.detectionTy = new double[detectionCount];
+    for (int i = 0; i < detectionCount; i++) {
+      inputs.detectionClassIds[i] = results.detectors[i].classId;
+      inputs.detectionTx[i] = Units.degreesToRadians(results.detectors[i].tx);
+      inputs.detectionTy[i] = Units.degreesToRadians(results.detectors[i].ty);
+    }
+  }
+}
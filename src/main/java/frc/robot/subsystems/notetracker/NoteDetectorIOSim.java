@@ -0,0 +1,94 @@
+package frc.robot.subsystems.notetracker;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.FieldConstants;
+import frc.robot.subsystems.notetracker.NoteTrackerConstants.SimConstants;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+
+/** Detects the staged notes from the robot's true pose, one frame per loop. */
+public class NoteDetectorIOSim implements NoteDetectorIO {
+  private final DoubleFunction<Pose2d> truePoseAt;
+  private final Random random = new Random(0);
+  private final Translation2d[] notes;
+
+  private final double cameraX;
+  private final double cameraY;
+  private final double cameraZ;
+  private final double cameraYaw;
+  private final double cameraPitch;
+  private final double horizontalLimit;
+  private final double verticalLimit;
+
+  /**
+   * @param truePoseAt The robot's true pose at a timestamp, never the fused pose estimate
+   */
+  public NoteDetectorIOSim(DoubleFunction<Pose2d> truePoseAt) {
+    this.truePoseAt = truePoseAt;
+
+    Translation2d[] centerline = FieldConstants.StagingLocations.centerlineTranslations;
+    Translation2d[] spikes = FieldConstants.StagingLocations.spikeTranslations;
+    notes = new Translation2d[centerline.length + spikes.length];
+    System.arraycopy(centerline, 0, notes, 0, centerline.length);
+    System.arraycopy(spikes, 0, notes, centerline.length, spikes.length);
+
+    cameraX = NoteTrackerConstants.ROBOT_TO_CAMERA.getX();
+    cameraY = NoteTrackerConstants.ROBOT_TO_CAMERA.getY();
+    cameraZ = NoteTrackerConstants.ROBOT_TO_CAMERA.getZ();
+    cameraYaw = NoteTrackerConstants.ROBOT_TO_CAMERA.getRotation().getZ();
+    cameraPitch = NoteTrackerConstants.ROBOT_TO_CAMERA.getRotation().getY();
+    horizontalLimit = Math.tan(NoteTrackerConstants.CAMERA_TYPE.horizontalFOV / 2.0);
+    verticalLimit = Math.tan(NoteTrackerConstants.CAMERA_TYPE.verticalFOV / 2.0);
+  }
+
+  @Override
+  public void updateInputs(NoteDetectorIOInputs inputs) {
+    double frameTimestamp = Timer.getFPGATimestamp() - SimConstants.LATENCY;
+    Pose2d pose = truePoseAt.apply(frameTimestamp);
+    double robotCos = pose.getRotation().getCos();
+    double robotSin = pose.getRotation().getSin();
+    double fieldCameraX = pose.getX() + robotCos * cameraX - robotSin * cameraY;
+    double fieldCameraY = pose.getY() + robotSin * cameraX + robotCos * cameraY;
+    double fieldCameraYaw = pose.getRotation().getRadians() + cameraYaw;
+    double yawCos = Math.cos(fieldCameraYaw);
+    double yawSin = Math.sin(fieldCameraYaw);
+    double pitchCos = Math.cos(cameraPitch);
+    double pitchSin = Math.sin(cameraPitch);
+
+    double[] tx = new double[notes.length];
+    double[] ty = new double[notes.length];
+    int detectionCount = 0;
+    for (Translation2d note : notes) {
+      double dx = note.getX() - fieldCameraX;
+      double dy = note.getY() - fieldCameraY;
+      double dz = NoteTrackerConstants.NOTE_CENTER_HEIGHT - cameraZ;
+      double forward = yawCos * dx + yawSin * dy;
+      double left = -yawSin * dx + yawCos * dy;
+      double depth = pitchCos * forward - pitchSin * dz;
+      double up = pitchSin * forward + pitchCos * dz;
+      if (depth <= 0.0
+          || Math.hypot(forward, left) > NoteTrackerConstants.MAX_DETECTION_DISTANCE
+          || Math.abs(left / depth) > horizontalLimit
+          || Math.abs(up / depth) > verticalLimit) {
+        continue;
+      }
+      tx[detectionCount] =
+          -Math.atan2(left, depth) + random.nextGaussian() * SimConstants.ANGLE_NOISE;
+      ty[detectionCount] = Math.atan2(up, depth) + random.nextGaussian() * SimConstants.ANGLE_NOISE;
+      detectionCount++;
+    }
+
+    inputs.frameTimestamps = new double[] {frameTimestamp};
+    inputs.detectionFrameIndices = new int[detectionCount];
+    inputs.detectionClassIds = new int[detectionCount];
+    inputs.detectionTx = new double[detectionCount];
+    inputs.detectionTy = new double[detectionCount];
+    for (int i = 0; i < detectionCount; i++) {
+      inputs.detectionClassIds[i] = NoteTrackerConstants.NOTE_CLASS_ID;
+      inputs.detectionTx[i] = tx[i];
+      inputs.detectionTy[i] = ty[i];
+    }
+  }
+}
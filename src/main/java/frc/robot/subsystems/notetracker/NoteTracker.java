@@ -0,0 +1,297 @@
+package frc.robot.subsystems.notetracker;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.RobotState;
+import frc.robot.util.LoopProfiler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import lombok.Getter;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Tracks notes on the field from neural detector results. Each detection is projected onto the
+ * floor through the camera mount and the robot pose at capture time, then associated with an
+ * existing track by nearest neighbor. Tracks are smoothed with an alpha-beta filter, so moving
+ * notes get a velocity, and carry a confidence that grows with every hit and decays while missed.
+ */
+public class NoteTracker extends SubsystemBase {
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/NoteTracker");
+
+  private final NoteDetectorIOInputsAutoLogged inputs;
+  private final NoteDetectorIO io;
+
+  private final double cameraX;
+  private final double cameraY;
+  private final double cameraZ;
+  private final double cameraYaw;
+  private final double pitchCos;
+  private final double pitchSin;
+  private final double horizontalLimit;
+
+  // Track state, fixed capacity and reused between loops
+  private final boolean[] active = new boolean[NoteTrackerConstants.MAX_TRACKS];
+  private final boolean[] hit = new boolean[NoteTrackerConstants.MAX_TRACKS];
+  private final int[] trackIds = new int[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] trackX = new double[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] trackY = new double[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] trackVx = new double[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] trackVy = new double[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] lastUpdate = new double[NoteTrackerConstants.MAX_TRACKS];
+  private final double[] confidence = new double[NoteTrackerConstants.MAX_TRACKS];
+  private int nextTrackId = 0;
+  private double lastTimestamp = Double.NaN;
+
+  @Getter private List<TrackedNote> trackedNotes = Collections.emptyList();
+
+  public NoteTracker(NoteDetectorIO io) {
+    inputs = new NoteDetectorIOInputsAutoLogged();
+    this.io = io;
+
+    cameraX = NoteTrackerConstants.ROBOT_TO_CAMERA.getX();
+    cameraY = NoteTrackerConstants.ROBOT_TO_CAMERA.getY();
+    cameraZ = NoteTrackerConstants.ROBOT_TO_CAMERA.getZ();
+    cameraYaw = NoteTrackerConstants.ROBOT_TO_CAMERA.getRotation().getZ();
+    pitchCos = Math.cos(NoteTrackerConstants.ROBOT_TO_CAMERA.getRotation().getY());
+    pitchSin = Math.sin(NoteTrackerConstants.ROBOT_TO_CAMERA.getRotation().getY());
+    horizontalLimit = Math.tan(NoteTrackerConstants.CAMERA_TYPE.horizontalFOV / 2.0);
+  }
+
+  @Override
+  public void periodic() {
+    profilerPhase.start();
+    io.updateInputs(inputs);
+    Logger.processInputs("NoteTracker", inputs);
+
+    double timestamp = Timer.getFPGATimestamp();
+    for (int i = 0; i < active.length; i++) {
+      hit[i] = false;
+    }
+
+    int detectionIndex = 0;
+    for (int frame = 0; frame < inputs.frameTimestamps.length; frame++) {
+      double frameTimestamp = inputs.frameTimestamps[frame];
+      Pose2d robotPose =
+          RobotState.getRobotPoseAt(frameTimestamp).orElseGet(RobotState::getRobotPose);
+      while (detectionIndex < inputs.detectionFrameIndices.length
+          && inputs.detectionFrameIndices[detectionIndex] == frame) {
+        if (inputs.detectionClassIds[detectionIndex] == NoteTrackerConstants.NOTE_CLASS_ID) {
+          addDetection(
+              robotPose,
+              inputs.detectionTx[detectionIndex],
+              inputs.detectionTy[detectionIndex],
+              frameTimestamp);
+        }
+        detectionIndex++;
+      }
+      decayMissedInFrame(robotPose, frameTimestamp);
+    }
+
+    decayOutOfView(RobotState.getRobotPose(), timestamp);
+    publish(timestamp);
+    lastTimestamp = timestamp;
+    profilerPhase.stop();
+  }
+
+  /**
+   * Returns the most confident note closest to a position, ignoring tracks below the reporting
+   * threshold.
+   */
+  public Optional<TrackedNote> getClosestNote(Translation2d position) {
+    TrackedNote closest = null;
+    double closestDistance = Double.POSITIVE_INFINITY;
+    for (TrackedNote note : trackedNotes) {
+      double distance = note.position().getDistance(position);
+      if (note.confidence() >= NoteTrackerConstants.MIN_REPORTED_CONFIDENCE
+          && distance < closestDistance) {
+        closest = note;
+        closestDistance = distance;
+      }
+    }
+    return Optional.ofNullable(closest);
+  }
+
+  /** Projects a detection onto the floor and folds it into the nearest track. */
+  private void addDetection(Pose2d robotPose, double tx, double ty, double timestamp) {
+    // Ray through the detection in the camera frame is (1, -tan(tx), tan(ty)), level it by pitch
+    double tanTy = Math.tan(ty);
+    double forward = pitchCos + pitchSin * tanTy;
+    double down = pitchSin - pitchCos * tanTy;
+    if (down <= 1e-3) {
+      return;
+    }
+    double scale = (cameraZ - NoteTrackerConstants.NOTE_CENTER_HEIGHT) / down;
+    forward *= scale;
+    double left = -Math.tan(tx) * scale;
+    if (Math.hypot(forward, left) > NoteTrackerConstants.MAX_DETECTION_DISTANCE) {
+      return;
+    }
+
+    double yawCos = Math.cos(cameraYaw);
+    double yawSin = Math.sin(cameraYaw);
+    double robotX = cameraX + yawCos * forward - yawSin * left;
+    double robotY = cameraY + yawSin * forward + yawCos * left;
+    double robotCos = robotPose.getRotation().getCos();
+    double robotSin = robotPose.getRotation().getSin();
+    double noteX = robotPose.getX() + robotCos * robotX - robotSin * robotY;
+    double noteY = robotPose.getY() + robotSin * robotX + robotCos * robotY;
+
+    int closestTrack = -1;
+    double closestDistance = NoteTrackerConstants.ASSOCIATION_DISTANCE;
+    for (int i = 0; i < active.length; i++) {
+      if (!active[i] || (hit[i] && lastUpdate[i] == timestamp)) {
+        continue;
+      }
+      double dt = timestamp - lastUpdate[i];
+      double distance =
+          Math.hypot(trackX[i] + trackVx[i] * dt - noteX, trackY[i] + trackVy[i] * dt - noteY);
+      if (distance < closestDistance) {
+        closestTrack = i;
+        closestDistance = distance;
+      }
+    }
+
+    if (closestTrack >= 0) {
+      updateTrack(closestTrack, noteX, noteY, timestamp);
+    } else {
+      startTrack(noteX, noteY, timestamp);
+    }
+  }
+
+  private void updateTrack(int i, double noteX, double noteY, double timestamp) {
+    double dt = timestamp - lastUpdate[i];
+    double predictedX = trackX[i] + trackVx[i] * Math.max(dt, 0.0);
+    double predictedY = trackY[i] + trackVy[i] * Math.max(dt, 0.0);
+    double residualX = noteX - predictedX;
+    double residualY = noteY - predictedY;
+    trackX[i] = predictedX + NoteTrackerConstants.ALPHA * residualX;
+    trackY[i] = predictedY + NoteTrackerConstants.ALPHA * residualY;
+    if (dt > 1e-3) {
+      trackVx[i] += NoteTrackerConstants.BETA * residualX / dt;
+      trackVy[i] += NoteTrackerConstants.BETA * residualY / dt;
+      double speed = Math.hypot(trackVx[i], trackVy[i]);
+      if (speed > NoteTrackerConstants.MAX_NOTE_SPEED) {
+        trackVx[i] *= NoteTrackerConstants.MAX_NOTE_SPEED / speed;
+        trackVy[i] *= NoteTrackerConstants.MAX_NOTE_SPEED / speed;
+      }
+    }
+    lastUpdate[i] = Math.max(lastUpdate[i], timestamp);
+    confidence[i] += (1.0 - confidence[i]) * NoteTrackerConstants.HIT_CONFIDENCE_GAIN;
+    hit[i] = true;
+  }
+
+  private void startTrack(double noteX, double noteY, double timestamp) {
+    // Take a free slot, or replace the least confident track if it is weaker than a new one
+    int slot = -1;
+    double lowestConfidence = NoteTrackerConstants.INITIAL_CONFIDENCE;
+    for (int i = 0; i < active.length; i++) {
+      if (!active[i]) {
+        slot = i;
+        break;
+      }
+      if (confidence[i] < lowestConfidence) {
+        slot = i;
+        lowestConfidence = confidence[i];
+      }
+    }
+    if (slot < 0) {
+      return;
+    }
+
+    active[slot] = true;
+    hit[slot] = true;
+    trackIds[slot] = nextTrackId++;
+    trackX[slot] = noteX;
+    trackY[slot] = noteY;
+    trackVx[slot] = 0.0;
+    trackVy[slot] = 0.0;
+    lastUpdate[slot] = timestamp;
+    confidence[slot] = NoteTrackerConstants.INITIAL_CONFIDENCE;
+  }
+
+  /** Lowers the confidence of tracks that a new frame should have seen but didn't. */
+  private void decayMissedInFrame(Pose2d robotPose, double frameTimestamp) {
+    for (int i = 0; i < active.length; i++) {
+      if (!active[i] || lastUpdate[i] >= frameTimestamp || !isInView(robotPose, i)) {
+        continue;
+      }
+      confidence[i] -= NoteTrackerConstants.MISSED_FRAME_CONFIDENCE_DECAY;
+      if (confidence[i] < NoteTrackerConstants.MIN_CONFIDENCE) {
+        active[i] = false;
+      }
+    }
+  }
+
+  /**
+   * Slowly lowers the confidence of tracks out of view, so notes behind the robot are remembered
+   * for a while but not forever. Tracks in view only decay with frames that miss them.
+   */
+  private void decayOutOfView(Pose2d robotPose, double timestamp) {
+    if (Double.isNaN(lastTimestamp)) {
+      return;
+    }
+    double dt = timestamp - lastTimestamp;
+    for (int i = 0; i < active.length; i++) {
+      if (!active[i] || hit[i] || isInView(robotPose, i)) {
+        continue;
+      }
+      confidence[i] -= dt * NoteTrackerConstants.OUT_OF_VIEW_CONFIDENCE_DECAY_RATE;
+      if (confidence[i] < NoteTrackerConstants.MIN_CONFIDENCE) {
+        active[i] = false;
+      }
+    }
+  }
+
+  /** Returns whether a track is inside the camera's field of view and detection range. */
+  private boolean isInView(Pose2d robotPose, int i) {
+    double robotCos = robotPose.getRotation().getCos();
+    double robotSin = robotPose.getRotation().getSin();
+    double fieldCameraX = robotPose.getX() + robotCos * cameraX - robotSin * cameraY;
+    double fieldCameraY = robotPose.getY() + robotSin * cameraX + robotCos * cameraY;
+    double fieldCameraYaw = robotPose.getRotation().getRadians() + cameraYaw;
+    double dx = trackX[i] - fieldCameraX;
+    double dy = trackY[i] - fieldCameraY;
+    double forward = Math.cos(fieldCameraYaw) * dx + Math.sin(fieldCameraYaw) * dy;
+    double left = -Math.sin(fieldCameraYaw) * dx + Math.cos(fieldCameraYaw) * dy;
+    return forward > 0.0
+        && Math.abs(left / forward) < horizontalLimit
+        && Math.hypot(forward, left) < NoteTrackerConstants.MAX_DETECTION_DISTANCE;
+  }
+
+  /** Publishes every active track, extrapolated to the current time. */
+  private void publish(double timestamp) {
+    List<TrackedNote> notes = new ArrayList<>(active.length);
+    for (int i = 0; i < active.length; i++) {
+      if (!active[i]) {
+        continue;
+      }
+      double dt = timestamp - lastUpdate[i];
+      notes.add(
+          new TrackedNote(
+              trackIds[i],
+              new Translation2d(trackX[i] + trackVx[i] * dt, trackY[i] + trackVy[i] * dt),
+              new Translation2d(trackVx[i], trackVy[i]),
+              confidence[i]));
+    }
+    trackedNotes = notes;
+
+    Translation2d[] positions = new Translation2d[notes.size()];
+    Translation2d[] velocities = new Translation2d[notes.size()];
+    double[] confidences = new double[notes.size()];
+    for (int i = 0; i < notes.size(); i++) {
+      positions[i] = notes.get(i).position();
+      velocities[i] = notes.get(i).velocity();
+      confidences[i] = notes.get(i).confidence();
+    }
+    Logger.recordOutput("NoteTracker/Positions", positions);
+    Logger.recordOutput("NoteTracker/Velocities", velocities);
+    Logger.recordOutput("NoteTracker/Confidences", confidences);
+  }
+
+  public static record TrackedNote(
+      int id, Translation2d position, Translation2d velocity, double confidence) {}
+}
@@ -0,0 +1,43 @@
+package frc.robot.subsystems.notetracker;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.vision.CameraType;
+
+public class NoteTrackerConstants {
+  public static final String LIMELIGHT_NAME = "note";
+  public static final CameraType CAMERA_TYPE = CameraType.LIMELIGHT_3;
+  public static final Transform3d ROBOT_TO_CAMERA =
+      new Transform3d(
+          new Translation3d(0.3, 0.0, 0.5), new Rotation3d(0.0, Units.degreesToRadians(25.0), 0.0));
+  public static final int DETECTION_QUEUE_DEPTH = 20;
+  // Read detections from the JSON dump on a background thread instead of "rawdetections". The dump
+  // includes confidences but only the latest frame, so frames between polls are skipped
+  public static final boolean USE_JSON_RESULTS = false;
+
+  // Index of "note" in nn_labels.txt
+  public static final int NOTE_CLASS_ID = 0;
+  public static final double NOTE_CENTER_HEIGHT = Units.inchesToMeters(1.0);
+  public static final double MAX_DETECTION_DISTANCE = 5.0;
+
+  public static final int MAX_TRACKS = 8;
+  public static final double ASSOCIATION_DISTANCE = 0.5;
+  public static final double ALPHA = 0.5;
+  public static final double BETA = 0.2;
+  public static final double MAX_NOTE_SPEED = 5.0;
+
+  public static final double INITIAL_CONFIDENCE = 0.3;
+  public static final double HIT_CONFIDENCE_GAIN = 0.3;
+  // Lost for each new frame that should have seen the note but didn't
+  public static final double MISSED_FRAME_CONFIDENCE_DECAY = 0.07;
+  public static final double OUT_OF_VIEW_CONFIDENCE_DECAY_RATE = 0.2;
+  public static final double MIN_CONFIDENCE = 0.1;
+  public static final double MIN_REPORTED_CONFIDENCE = 0.5;
+
+  public static class SimConstants {
+    public static final double LATENCY = 0.03;
+    public static final double ANGLE_NOISE = Units.degreesToRadians(0.5);
+  }
+}
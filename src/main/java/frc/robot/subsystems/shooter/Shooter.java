@@ -2,17 +2,21 @@ package frc.robot.subsystems.shooter;
 
 import static edu.wpi.first.units.Units.*;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
 import frc.robot.RobotState;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
 import frc.robot.util.LoggedTunableNumber;
-import org.littletonrobotics.junction.AutoLogOutput;
+import frc.robot.util.LoopProfiler;
 import org.littletonrobotics.junction.Logger;
 
 public class Shooter extends SubsystemBase {
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Shooter");
 
   private final ShooterIOInputsAutoLogged inputs;
   private final ShooterIO io;
@@ -48,6 +52,7 @@ public class Shooter extends SubsystemBase {
    */
   @Override
   public void periodic() {
+    profilerPhase.start();
     io.updateInputs(inputs);
     Logger.processInputs("Shooter", inputs);
     if (isClosedLoop) {
@@ -85,6 +90,8 @@ public class Shooter extends SubsystemBase {
     Logger.recordOutput("Shooter/Position", inputs.topPosition.getRadians());
     Logger.recordOutput(
         "Shooter/Error", inputs.topVelocityGoalRadiansPerSec - inputs.topVelocityRadPerSec);
+    LoggedOutputs.record("Shooter/at setpoint", atSetPoint(), Policy.ON_CHANGE);
+    profilerPhase.stop();
   }
 
   /**
@@ -162,11 +169,21 @@ public class Shooter extends SubsystemBase {
    * @return true if the shooter motors are at the velocity setpoint, false otherwise. The method
    *     returns the result of the {@link ShooterIO#atSetPoint()} method.
    */
-  @AutoLogOutput(key = "Shooter/at setpoint")
   public boolean atSetPoint() {
     return io.atSetPoint();
   }
 
+  /**
+   * @return how far the top motor is to its goal velocity, from 0 to 1, or 0 with no goal
+   */
+  public double getSpinUpFraction() {
+    if (inputs.topVelocityGoalRadiansPerSec == 0.0) {
+      return 0.0;
+    }
+    return MathUtil.clamp(
+        inputs.topVelocityRadPerSec / inputs.topVelocityGoalRadiansPerSec, 0.0, 1.0);
+  }
+
   /**
    * Runs quasistatic and dynamic tests with the motors moving both forwards and backwards to
    * calculate the feedForward gains.
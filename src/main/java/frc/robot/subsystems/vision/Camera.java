@@ -2,6 +2,11 @@ package frc.robot.subsystems.vision;
 
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import frc.robot.util.JvmTelemetry;
 import lombok.Getter;
 import org.littletonrobotics.junction.Logger;
 
@@ -9,7 +14,14 @@ public class Camera {
   private final CameraIOInputsAutoLogged inputs;
 
   private final CameraIO io;
+  private final VisionMailbox mailbox;
+  private final VisionWorker worker;
+  private final VisionFrame[] drainedFrames;
+  @Getter private final VisionGate gate;
+  @Getter private final CameraLatencyTracker latencyTracker;
+  @Getter private double drainTimestamp = 0.0;
   @Getter private final String name;
+  @Getter private final Transform3d robotToCamera;
   @Getter private final CameraType cameraType;
   @Getter private final double horizontalFOV;
   @Getter private final double verticalFOV;
@@ -18,6 +30,7 @@ public class Camera {
 
   public Camera(
       CameraIO io,
+      Transform3d robotToCamera,
       double horizontalFOV,
       double verticalFOV,
       double primaryXYStandardDeviationCoefficient,
@@ -25,17 +38,101 @@ public class Camera {
     inputs = new CameraIOInputsAutoLogged();
 
     this.io = io;
-    this.name = io.getName();
+    this.name = io.toString();
+    this.robotToCamera = robotToCamera;
     this.cameraType = io.getCameraType();
     this.horizontalFOV = horizontalFOV;
     this.verticalFOV = verticalFOV;
     this.primaryXYStandardDeviationCoefficient = primaryXYStandardDeviationCoefficient;
     this.secondaryXYStandardDeviationCoefficient = secondaryXYStandardDeviationCoefficient;
+
+    gate = new VisionGate(io.toString());
+    latencyTracker = new CameraLatencyTracker(io.toString());
+    mailbox = new VisionMailbox(CameraConstants.MAILBOX_CAPACITY);
+    drainedFrames = new VisionFrame[CameraConstants.MAILBOX_CAPACITY];
+    worker = new VisionWorker(io, mailbox);
+    // Frames come from the log during replay, so there is nothing for the worker to do
+    if (Constants.getMode() != Mode.REPLAY) {
+      worker.start();
+      JvmTelemetry.getInstance().trackThread(worker.getName(), worker);
+    }
   }
 
   public void periodic() {
+    io.simulateFrames(mailbox);
     io.updateInputs(inputs);
+    drainFrames();
     Logger.processInputs("Vision/Cameras/" + io.toString(), inputs);
+
+    drainTimestamp = Timer.getFPGATimestamp();
+    for (int i = 0; i < inputs.frameTimestamps.length; i++) {
+      latencyTracker.recordFrame(
+          inputs.captureLatencies[i],
+          inputs.pipelineLatencies[i],
+          inputs.networkLatencies[i],
+          drainTimestamp - inputs.receiveTimestamps[i]);
+    }
+    latencyTracker.log();
+  }
+
+  /** Moves every solved frame waiting in the mailbox into the inputs so that it gets logged. */
+  private void drainFrames() {
+    int frameCount = mailbox.size();
+    inputs.frameTimestamps = new double[frameCount];
+    inputs.primaryPoses = new Pose3d[frameCount];
+    inputs.secondaryPoses = new Pose3d[frameCount];
+    inputs.tagCounts = new int[frameCount];
+    inputs.averageDistances = new double[frameCount];
+    inputs.ambiguities = new double[frameCount];
+    inputs.receiveTimestamps = new double[frameCount];
+    inputs.captureLatencies = new double[frameCount];
+    inputs.pipelineLatencies = new double[frameCount];
+    inputs.networkLatencies = new double[frameCount];
+    int fiducialCount = 0;
+    for (int i = 0; i < frameCount; i++) {
+      VisionFrame frame = mailbox.poll();
+      drainedFrames[i] = frame;
+      inputs.frameTimestamps[i] = frame.timestamp();
+      inputs.primaryPoses[i] = frame.primaryPose();
+      inputs.secondaryPoses[i] = frame.secondaryPose();
+      inputs.tagCounts[i] = frame.tagCount();
+      inputs.averageDistances[i] = frame.averageDistance();
+      inputs.ambiguities[i] = frame.maxAmbiguity();
+      inputs.receiveTimestamps[i] = frame.receiveTimestamp();
+      inputs.captureLatencies[i] = frame.captureLatency();
+      inputs.pipelineLatencies[i] = frame.pipelineLatency();
+      inputs.networkLatencies[i] = frame.networkLatency();
+      fiducialCount += frame.fiducialIds().length;
+    }
+
+    inputs.fiducialFrameIndices = new int[fiducialCount];
+    inputs.fiducialIds = new int[fiducialCount];
+    inputs.fiducialTx = new double[fiducialCount];
+    inputs.fiducialTy = new double[fiducialCount];
+    inputs.fiducialDistances = new double[fiducialCount];
+    int fiducialIndex = 0;
+    for (int i = 0; i < frameCount; i++) {
+      VisionFrame frame = drainedFrames[i];
+      int frameFiducials = frame.fiducialIds().length;
+      for (int j = 0; j < frameFiducials; j++) {
+        inputs.fiducialFrameIndices[fiducialIndex + j] = i;
+      }
+      System.arraycopy(frame.fiducialIds(), 0, inputs.fiducialIds, fiducialIndex, frameFiducials);
+      System.arraycopy(frame.fiducialTx(), 0, inputs.fiducialTx, fiducialIndex, frameFiducials);
+      System.arraycopy(frame.fiducialTy(), 0, inputs.fiducialTy, fiducialIndex, frameFiducials);
+      System.arraycopy(
+          frame.fiducialDistances(), 0, inputs.fiducialDistances, fiducialIndex, frameFiducials);
+      fiducialIndex += frameFiducials;
+      drainedFrames[i] = null;
+    }
+
+    if (frameCount > 0) {
+      inputs.frameTimestamp = inputs.frameTimestamps[frameCount - 1];
+      inputs.primaryPose = inputs.primaryPoses[frameCount - 1];
+      inputs.secondaryPose = inputs.secondaryPoses[frameCount - 1];
+      inputs.averageDistance = inputs.averageDistances[frameCount - 1];
+    }
+    inputs.framesDropped += mailbox.getOverflowCount();
   }
 
   public Rotation2d getXOffset() {
@@ -70,7 +167,63 @@ public class Camera {
     return inputs.secondaryPose;
   }
 
+  public double[] getFrameTimestamps() {
+    return inputs.frameTimestamps;
+  }
+
+  public Pose3d[] getPrimaryPoses() {
+    return inputs.primaryPoses;
+  }
+
+  public Pose3d[] getSecondaryPoses() {
+    return inputs.secondaryPoses;
+  }
+
+  public int[] getTagCounts() {
+    return inputs.tagCounts;
+  }
+
+  public double[] getAverageDistances() {
+    return inputs.averageDistances;
+  }
+
+  public double[] getAmbiguities() {
+    return inputs.ambiguities;
+  }
+
+  public double[] getReceiveTimestamps() {
+    return inputs.receiveTimestamps;
+  }
+
+  public int[] getFiducialFrameIndices() {
+    return inputs.fiducialFrameIndices;
+  }
+
+  public int[] getFiducialIds() {
+    return inputs.fiducialIds;
+  }
+
+  public double[] getFiducialTx() {
+    return inputs.fiducialTx;
+  }
+
+  public double[] getFiducialTy() {
+    return inputs.fiducialTy;
+  }
+
+  public double[] getFiducialDistances() {
+    return inputs.fiducialDistances;
+  }
+
   public void setPipeline(int pipeline) {
     io.setPipeline(pipeline);
   }
+
+  public void setCropWindow(double xMin, double xMax, double yMin, double yMax) {
+    io.setCropWindow(xMin, xMax, yMin, yMax);
+  }
+
+  public void setRobotOrientation(Rotation2d heading, double yawVelocityRadPerSec) {
+    io.setRobotOrientation(heading, yawVelocityRadPerSec);
+  }
 }
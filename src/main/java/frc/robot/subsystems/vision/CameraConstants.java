@@ -1,9 +1,15 @@
 package frc.robot.subsystems.vision;
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.util.Units;
+import frc.robot.util.LoggedTunableNumber;
 
 public class CameraConstants {
   public static final double BLINK_TIME = 0.067;
+  public static final double WORKER_PERIOD_SECONDS = 0.005;
+  public static final int MAILBOX_CAPACITY = 32;
 
   public static class Limelight3Constants {
     public static final double HORIZONTAL_FOV = Units.degreesToRadians(62.5);
@@ -26,5 +32,101 @@ public class CameraConstants {
     public static final double AVERAGE_BEST_XY_STANDARD_DEVIATION_COEFFICIENT = 0.1;
   }
 
-  public static class RobotCameras {}
+  public static class GatingConstants {
+    public static final LoggedTunableNumber FIELD_BORDER_MARGIN =
+        new LoggedTunableNumber("Vision/Gating/Field Border Margin", 0.5);
+    public static final LoggedTunableNumber MAX_Z_ERROR =
+        new LoggedTunableNumber("Vision/Gating/Max Z Error", 0.75);
+    public static final LoggedTunableNumber MAX_ROLL_PITCH =
+        new LoggedTunableNumber("Vision/Gating/Max Roll Pitch", Units.degreesToRadians(10.0));
+    public static final LoggedTunableNumber MAX_AMBIGUITY =
+        new LoggedTunableNumber("Vision/Gating/Max Ambiguity", 0.3);
+    public static final LoggedTunableNumber MAX_AVERAGE_DISTANCE =
+        new LoggedTunableNumber("Vision/Gating/Max Average Distance", 6.0);
+    public static final LoggedTunableNumber MAX_YAW_VELOCITY =
+        new LoggedTunableNumber("Vision/Gating/Max Yaw Velocity", Units.degreesToRadians(720.0));
+    public static final LoggedTunableNumber MAX_POSE_JUMP =
+        new LoggedTunableNumber("Vision/Gating/Max Pose Jump", 1.0);
+    public static final LoggedTunableNumber MAX_FRAME_AGE =
+        new LoggedTunableNumber("Vision/Gating/Max Frame Age", 0.3);
+    public static final int MAX_CONSECUTIVE_JUMP_REJECTIONS = 25;
+
+    public static final double MIN_XY_STANDARD_DEVIATION = 0.02;
+    public static final double THETA_STANDARD_DEVIATION_COEFFICIENT = 0.05;
+  }
+
+  public static class CropConstants {
+    public static final double TAG_SIZE = Units.inchesToMeters(6.5);
+    public static final double MAX_TAG_DISTANCE = 7.0;
+    public static final double MIN_TAG_DEPTH = 0.1;
+    public static final double BASE_POSITION_UNCERTAINTY = 0.05;
+    public static final double POSITION_UNCERTAINTY_GROWTH_RATE = 0.5;
+    public static final double MAX_POSITION_UNCERTAINTY = 1.0;
+    public static final double HEADING_UNCERTAINTY = Units.degreesToRadians(3.0);
+    public static final int LOST_TARGET_LOOPS = 5;
+    public static final double UPDATE_DEADBAND = 0.02;
+  }
+
+  public static class LatencyConstants {
+    public static final int WINDOW_SIZE = 500;
+    public static final double MAX_LATENCY = 0.2;
+    public static final int BINS = 40;
+    public static final double MAX_NETWORK_LATENCY = 0.5;
+  }
+
+  public static class PipelineConstants {
+    // Every AprilTag camera must have these pipelines set up at these indices
+    public static final int APRILTAG_LONG_RANGE_INDEX = 0;
+    public static final int APRILTAG_HIGH_FPS_INDEX = 1;
+
+    public static final double FAST_ENTER_SPEED = 2.0;
+    public static final double FAST_EXIT_SPEED = 1.5;
+    public static final double AIMING_ANGLE_TOLERANCE = Units.degreesToRadians(30.0);
+    public static final double MIN_DWELL_TIME = 0.5;
+  }
+
+  public static class MultiCameraSolverConstants {
+    public static final boolean ENABLED = true;
+    public static final int MAX_OBSERVATIONS = 64;
+    public static final int MAX_ITERATIONS = 10;
+    public static final double CONVERGENCE_THRESHOLD = 1e-5;
+    public static final double MAX_TIME_SPREAD = 0.05;
+    public static final double POSE_HISTORY_SECONDS = 1.0;
+    public static final double ANGLE_STANDARD_DEVIATION = Units.degreesToRadians(0.5);
+    public static final double PRIOR_XY_STANDARD_DEVIATION = 1.0;
+    public static final double PRIOR_THETA_STANDARD_DEVIATION = Units.degreesToRadians(30.0);
+    public static final double MAX_RMS_ERROR = Units.degreesToRadians(2.0);
+    public static final double XY_STANDARD_DEVIATION_COEFFICIENT = 0.002;
+  }
+
+  public static class SimConstants {
+    public static final double FRAME_RATE = 100.0;
+    public static final double LATENCY = 0.025;
+    public static final double LATENCY_JITTER = 0.005;
+    public static final double MAX_TAG_DISTANCE = 6.0;
+    public static final double XY_NOISE_COEFFICIENT = 0.005;
+    public static final double MIN_XY_NOISE = 0.01;
+    public static final double THETA_NOISE = Units.degreesToRadians(1.0);
+    public static final double ANGLE_NOISE = Units.degreesToRadians(0.1);
+    public static final double MAX_SINGLE_TAG_AMBIGUITY = 0.25;
+  }
+
+  public static class RobotCameras {
+    public static final Transform3d FRONT_LEFT =
+        new Transform3d(
+            new Translation3d(0.25, 0.25, 0.25),
+            new Rotation3d(0.0, Units.degreesToRadians(-20.0), Units.degreesToRadians(20.0)));
+    public static final Transform3d FRONT_RIGHT =
+        new Transform3d(
+            new Translation3d(0.25, -0.25, 0.25),
+            new Rotation3d(0.0, Units.degreesToRadians(-20.0), Units.degreesToRadians(-20.0)));
+    public static final Transform3d BACK_LEFT =
+        new Transform3d(
+            new Translation3d(-0.25, 0.25, 0.25),
+            new Rotation3d(0.0, Units.degreesToRadians(-20.0), Units.degreesToRadians(160.0)));
+    public static final Transform3d BACK_RIGHT =
+        new Transform3d(
+            new Translation3d(-0.25, -0.25, 0.25),
+            new Rotation3d(0.0, Units.degreesToRadians(-20.0), Units.degreesToRadians(-160.0)));
+  }
 }
@@ -15,10 +15,44 @@ public interface CameraIO {
     public double frameTimestamp = 0.0;
     public Pose3d primaryPose = new Pose3d();
     public Pose3d secondaryPose = new Pose3d();
+
+    // Every frame received since the last update, oldest first
+    public double[] frameTimestamps = new double[] {};
+    public Pose3d[] primaryPoses = new Pose3d[] {};
+    public Pose3d[] secondaryPoses = new Pose3d[] {};
+    public int[] tagCounts = new int[] {};
+    public double[] averageDistances = new double[] {};
+    public double[] ambiguities = new double[] {};
+    public double[] receiveTimestamps = new double[] {};
+    public double[] captureLatencies = new double[] {};
+    public double[] pipelineLatencies = new double[] {};
+    public double[] networkLatencies = new double[] {};
+
+    // Raw tag observations from every frame, flattened, with the index of the frame they came from
+    public int[] fiducialFrameIndices = new int[] {};
+    public int[] fiducialIds = new int[] {};
+    public double[] fiducialTx = new double[] {};
+    public double[] fiducialTy = new double[] {};
+    public double[] fiducialDistances = new double[] {};
+
+    public long framesReceived = 0;
+    public long framesDropped = 0;
   }
 
   public default void updateInputs(CameraIOInputs inputs) {}
 
+  /**
+   * Decodes and solves every frame received since the last call, publishing each result to the
+   * mailbox. Called from the camera's worker thread, never from the main loop.
+   */
+  public default void processFrames(VisionMailbox mailbox) {}
+
+  /**
+   * Publishes frames to the mailbox from the main loop, just before it is drained. Simulated
+   * cameras use this instead of the worker, so their frames do not depend on thread timing.
+   */
+  public default void simulateFrames(VisionMailbox mailbox) {}
+
   public default Rotation2d getXOffset() {
     return new Rotation2d();
   }
@@ -80,4 +114,9 @@ public interface CameraIO {
   }
 
   public default void setPipeline(int pipeline) {}
+
+  /** Sets the region of the image to process, in normalized coordinates from -1 to 1. */
+  public default void setCropWindow(double xMin, double xMax, double yMin, double yMax) {}
+
+  public default void setRobotOrientation(Rotation2d heading, double yawVelocityRadPerSec) {}
 }
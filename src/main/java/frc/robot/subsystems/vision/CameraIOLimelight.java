@@ -2,10 +2,23 @@ package frc.robot.subsystems.vision;
 
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
 import frc.robot.util.LimelightHelpers;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
+import org.littletonrobotics.junction.Logger;
 
 public class CameraIOLimelight implements CameraIO {
+  private static final int FRAME_QUEUE_DEPTH = 20;
+
   private final String name;
   @Getter private final CameraType cameraType;
   @Getter private final double horizontalFOV;
@@ -13,6 +26,18 @@ public class CameraIOLimelight implements CameraIO {
   @Getter private final double primaryXYStandardDeviationCoefficient;
   @Getter private final double secondaryXYStandardDeviationCoefficient;
 
+  private final DoubleArraySubscriber megaTag2Subscriber;
+  private final DoubleArraySubscriber megaTagSubscriber;
+  private final DoubleSubscriber heartbeatSubscriber;
+  private final DoubleSubscriber captureLatencySubscriber;
+  private final DoubleArrayPublisher robotOrientationPublisher;
+  private final double[] robotOrientation = new double[6];
+  private final DoubleArrayPublisher cropPublisher;
+  private final double[] crop = new double[4];
+  private final AtomicLong framesReceived = new AtomicLong();
+  private final AtomicLong framesDropped = new AtomicLong();
+  private double lastHeartbeat = -1.0; // Only touched by the worker thread
+
   public CameraIOLimelight(String name, CameraType cameraType) {
     this.name = "limelight-" + name;
     this.cameraType = cameraType;
@@ -21,6 +46,29 @@ public class CameraIOLimelight implements CameraIO {
     this.primaryXYStandardDeviationCoefficient = cameraType.primaryXYStandardDeviationCoefficient;
     this.secondaryXYStandardDeviationCoefficient =
         cameraType.secondaryXYStandardDeviationCoefficient;
+
+    // Queue every published frame, including repeated values, so nothing is lost between loops
+    NetworkTable table = LimelightHelpers.getLimelightNTTable(this.name);
+    megaTag2Subscriber =
+        table
+            .getDoubleArrayTopic("botpose_orb_wpiblue")
+            .subscribe(
+                new double[] {},
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(FRAME_QUEUE_DEPTH));
+    megaTagSubscriber =
+        table
+            .getDoubleArrayTopic("botpose_wpiblue")
+            .subscribe(
+                new double[] {},
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(FRAME_QUEUE_DEPTH));
+    heartbeatSubscriber = table.getDoubleTopic("hb").subscribe(-1.0);
+    captureLatencySubscriber = table.getDoubleTopic("cl").subscribe(0.0);
+    robotOrientationPublisher = table.getDoubleArrayTopic("robot_orientation_set").publish();
+    cropPublisher = table.getDoubleArrayTopic("crop").publish();
   }
 
   @Override
@@ -29,11 +77,84 @@ public class CameraIOLimelight implements CameraIO {
     inputs.yOffset = Rotation2d.fromDegrees(LimelightHelpers.getTY(name));
     inputs.targetAquired = LimelightHelpers.getTV(name);
     inputs.totalTargets = LimelightHelpers.getTargetCount(name);
-    inputs.averageDistance = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(name).avgTagDist;
-    inputs.primaryPose =
-        new Pose3d(LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(name).pose);
-    inputs.secondaryPose = new Pose3d(LimelightHelpers.getBotPoseEstimate_wpiBlue(name).pose);
-    inputs.frameTimestamp = LimelightHelpers.getBotPoseEstimate_wpiBlue(name).timestampSeconds;
+    inputs.framesReceived = framesReceived.get();
+    inputs.framesDropped = framesDropped.get();
+  }
+
+  @Override
+  public void processFrames(VisionMailbox mailbox) {
+    TimestampedDoubleArray[] megaTag2Frames = megaTag2Subscriber.readQueue();
+    TimestampedDoubleArray[] megaTagFrames = megaTagSubscriber.readQueue();
+
+    // Both pose entries are published in the same flush, so frames line up by index. MegaTag1 is
+    // only used as a second opinion when it has multiple tags, MegaTag2 is better for single tags
+    boolean megaTagAligned = megaTagFrames.length == megaTag2Frames.length;
+    double captureLatencyMillis = captureLatencySubscriber.get();
+    // Read once per drain, the wait in the queue counts as network latency
+    long receiveMicros = Logger.getRealTimestamp();
+    for (int i = 0; i < megaTag2Frames.length; i++) {
+      double[] value = megaTag2Frames[i].value;
+      int tagCount = getTagCount(value);
+      if (tagCount <= 0) {
+        continue;
+      }
+
+      Pose3d primaryPose = toPose3d(value);
+      Pose3d secondaryPose =
+          megaTagAligned && getTagCount(megaTagFrames[i].value) > 1
+              ? toPose3d(megaTagFrames[i].value)
+              : primaryPose;
+      // Raw fiducials follow the pose fields, seven values per tag
+      boolean hasFiducials = value.length == 11 + 7 * tagCount;
+      int fiducialCount = hasFiducials ? tagCount : 0;
+      int[] fiducialIds = new int[fiducialCount];
+      double[] fiducialTx = new double[fiducialCount];
+      double[] fiducialTy = new double[fiducialCount];
+      double[] fiducialDistances = new double[fiducialCount];
+      for (int j = 0; j < fiducialCount; j++) {
+        int baseIndex = 11 + 7 * j;
+        fiducialIds[j] = (int) value[baseIndex];
+        fiducialTx[j] = Units.degreesToRadians(value[baseIndex + 1]);
+        fiducialTy[j] = Units.degreesToRadians(value[baseIndex + 2]);
+        fiducialDistances[j] = value[baseIndex + 4];
+      }
+
+      // NetworkTables times are in microseconds, Limelight latency is in milliseconds. The total
+      // latency is only split using the latest capture latency, which is close enough for queued
+      // frames. Measure back from the publish time when the Limelight's clock is synced
+      double receiveTimestamp = receiveMicros / 1e6;
+      double networkLatency =
+          CameraLatencyTracker.getNetworkLatency(receiveMicros, megaTag2Frames[i].timestamp);
+      double totalLatency = getArrayEntry(value, 6) / 1e3;
+      double captureLatency = Math.min(captureLatencyMillis / 1e3, totalLatency);
+      double publishTimestamp =
+          Double.isNaN(networkLatency) ? receiveTimestamp : receiveTimestamp - networkLatency;
+      mailbox.offer(
+          new VisionFrame(
+              publishTimestamp - totalLatency,
+              primaryPose,
+              secondaryPose,
+              tagCount,
+              getArrayEntry(value, 9),
+              getMaxAmbiguity(value, tagCount),
+              fiducialIds,
+              fiducialTx,
+              fiducialTy,
+              fiducialDistances,
+              receiveTimestamp,
+              captureLatency,
+              totalLatency - captureLatency,
+              networkLatency));
+    }
+
+    // The heartbeat increments once per processed frame, anything not in the queue was dropped
+    double heartbeat = heartbeatSubscriber.get();
+    framesReceived.addAndGet(megaTag2Frames.length);
+    if (lastHeartbeat >= 0.0 && heartbeat > lastHeartbeat) {
+      long framesPublished = (long) (heartbeat - lastHeartbeat);
+      framesDropped.addAndGet(Math.max(0L, framesPublished - megaTag2Frames.length));
+    }
+    lastHeartbeat = heartbeat;
   }
 
   @Override
@@ -41,6 +162,23 @@ public class CameraIOLimelight implements CameraIO {
     LimelightHelpers.setPipelineIndex(name, pipeline);
   }
 
+  @Override
+  public void setCropWindow(double xMin, double xMax, double yMin, double yMax) {
+    crop[0] = xMin;
+    crop[1] = xMax;
+    crop[2] = yMin;
+    crop[3] = yMax;
+    cropPublisher.set(crop);
+  }
+
+  @Override
+  public void setRobotOrientation(Rotation2d heading, double yawVelocityRadPerSec) {
+    // Limelight expects degrees, pitch and roll are left at zero
+    robotOrientation[0] = heading.getDegrees();
+    robotOrientation[1] = Units.radiansToDegrees(yawVelocityRadPerSec);
+    robotOrientationPublisher.set(robotOrientation);
+  }
+
   @Override
   public String getName() {
     return name;
@@ -50,4 +188,36 @@ public class CameraIOLimelight implements CameraIO {
   public String toString() {
     return name;
   }
+
+  private static int getTagCount(double[] poseArray) {
+    return (int) getArrayEntry(poseArray, 7);
+  }
+
+  /** Returns the highest ambiguity of the raw fiducials appended after the pose fields. */
+  private static double getMaxAmbiguity(double[] poseArray, int tagCount) {
+    if (poseArray.length != 11 + 7 * tagCount) {
+      return 0.0;
+    }
+    double maxAmbiguity = 0.0;
+    for (int i = 0; i < tagCount; i++) {
+      maxAmbiguity = Math.max(maxAmbiguity, poseArray[11 + 7 * i + 6]);
+    }
+    return maxAmbiguity;
+  }
+
+  private static double getArrayEntry(double[] poseArray, int index) {
+    return poseArray.length > index ? poseArray[index] : 0.0;
+  }
+
+  private static Pose3d toPose3d(double[] poseArray) {
+    if (poseArray.length < 6) {
+      return new Pose3d();
+    }
+    return new Pose3d(
+        new Translation3d(poseArray[0], poseArray[1], poseArray[2]),
+        new Rotation3d(
+            Units.degreesToRadians(poseArray[3]),
+            Units.degreesToRadians(poseArray[4]),
+            Units.degreesToRadians(poseArray[5])));
+  }
 }
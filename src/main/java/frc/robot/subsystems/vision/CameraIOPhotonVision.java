@@ -4,16 +4,33 @@ import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.IntegerSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.networktables.TimestampedRaw;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
+import org.littletonrobotics.junction.Logger;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
-import org.photonvision.PhotonPoseEstimator;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.common.dataflow.structures.Packet;
 import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
 
 public class CameraIOPhotonVision implements CameraIO {
+  private static final int FRAME_QUEUE_DEPTH = 20;
+
   private final PhotonCamera camera;
+  private final RawSubscriber resultSubscriber;
+  private final IntegerSubscriber heartbeatSubscriber;
+  private long lastHeartbeat = -1; // Only touched by the worker thread
   private final PhotonPoseEstimator primaryPhotonPoseEstimator;
   private final PhotonPoseEstimator secondaryPhotonPoseEstimator;
 
@@ -23,14 +40,18 @@ public class CameraIOPhotonVision implements CameraIO {
   @Getter private final double primaryXYStandardDeviationCoefficient;
   @Getter private final double secondaryXYStandardDeviationCoefficient;
 
-  @Getter private Rotation2d xOffset;
-  @Getter private Rotation2d yOffset;
-  @Getter private boolean targetAquired;
-  @Getter private int totalTargets;
-  @Getter private double averageDistance;
-  @Getter private double frameTimestamp;
-  @Getter private Pose3d primaryPose;
-  @Getter Pose3d secondaryPose;
+  // Written by the worker thread, read by the main loop
+  @Getter private volatile Rotation2d xOffset = new Rotation2d();
+  @Getter private volatile Rotation2d yOffset = new Rotation2d();
+  @Getter private volatile boolean targetAquired;
+  @Getter private volatile int totalTargets;
+  @Getter private volatile double averageDistance;
+  @Getter private volatile double frameTimestamp;
+  @Getter private volatile Pose3d primaryPose = new Pose3d();
+  @Getter private volatile Pose3d secondaryPose = new Pose3d();
+
+  private final AtomicLong framesReceived = new AtomicLong();
+  private final AtomicLong framesDropped = new AtomicLong();
 
   public CameraIOPhotonVision(
       String cameraName,
@@ -50,37 +71,115 @@ public class CameraIOPhotonVision implements CameraIO {
     this.primaryXYStandardDeviationCoefficient = cameraType.primaryXYStandardDeviationCoefficient;
     this.secondaryXYStandardDeviationCoefficient =
         cameraType.secondaryXYStandardDeviationCoefficient;
+
+    // Queue every serialized result instead of sampling only the latest one
+    NetworkTable cameraTable =
+        NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(cameraName);
+    resultSubscriber =
+        cameraTable
+            .getRawTopic("rawBytes")
+            .subscribe(
+                "rawBytes",
+                new byte[] {},
+                PubSubOption.periodic(0.01),
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.sendAll(true),
+                PubSubOption.pollStorage(FRAME_QUEUE_DEPTH));
+    heartbeatSubscriber = cameraTable.getIntegerTopic("heartbeat").subscribe(-1);
   }
 
   @Override
   public void updateInputs(CameraIOInputs inputs) {
-    PhotonPipelineResult result = camera.getLatestResult();
-    if (result.hasTargets()) {
-      primaryPhotonPoseEstimator.setReferencePose(inputs.primaryPose);
-      inputs.targetAquired = true;
-      inputs.totalTargets = result.getTargets().size();
-      inputs.frameTimestamp = result.getTimestampSeconds();
-      inputs.xOffset = Rotation2d.fromDegrees(result.getBestTarget().getYaw());
-      inputs.yOffset = Rotation2d.fromDegrees(result.getBestTarget().getPitch());
+    inputs.xOffset = xOffset;
+    inputs.yOffset = yOffset;
+    inputs.targetAquired = targetAquired;
+    inputs.totalTargets = totalTargets;
+    inputs.framesReceived = framesReceived.get();
+    inputs.framesDropped = framesDropped.get();
+  }
+
+  @Override
+  public void processFrames(VisionMailbox mailbox) {
+    TimestampedRaw[] rawResults = resultSubscriber.readQueue();
+    // Read once per drain, the wait in the queue counts as network latency
+    long receiveMicros = Logger.getRealTimestamp();
+    for (TimestampedRaw rawResult : rawResults) {
+      PhotonPipelineResult result = PhotonPipelineResult.serde.unpack(new Packet(rawResult.value));
+      // NetworkTables times are in microseconds, pipeline latency is in milliseconds. Measure back
+      // from the publish time when the coprocessor's clock is synced
+      double receiveTimestamp = receiveMicros / 1e6;
+      double networkLatency =
+          CameraLatencyTracker.getNetworkLatency(receiveMicros, rawResult.timestamp);
+      double pipelineLatency = result.getLatencyMillis() / 1e3;
+      double publishTimestamp =
+          Double.isNaN(networkLatency) ? receiveTimestamp : receiveTimestamp - networkLatency;
+      result.setTimestampSeconds(publishTimestamp - pipelineLatency);
+      targetAquired = result.hasTargets();
+      if (!result.hasTargets()) {
+        continue;
+      }
+
+      List<PhotonTrackedTarget> targets = result.getTargets();
+      int[] fiducialIds = new int[targets.size()];
+      double[] fiducialTx = new double[targets.size()];
+      double[] fiducialTy = new double[targets.size()];
+      double[] fiducialDistances = new double[targets.size()];
+      double totalDistance = 0.0;
+      double maxAmbiguity = 0.0;
+      for (int i = 0; i < targets.size(); i++) {
+        PhotonTrackedTarget target = targets.get(i);
+        fiducialIds[i] = target.getFiducialId();
+        fiducialTx[i] = Units.degreesToRadians(target.getYaw());
+        fiducialTy[i] = Units.degreesToRadians(target.getPitch());
+        fiducialDistances[i] = target.getBestCameraToTarget().getTranslation().getNorm();
+        totalDistance += fiducialDistances[i];
+        maxAmbiguity = Math.max(maxAmbiguity, target.getPoseAmbiguity());
+      }
+      totalTargets = targets.size();
+      averageDistance = totalDistance / targets.size();
+      frameTimestamp = result.getTimestampSeconds();
+      xOffset = Rotation2d.fromDegrees(result.getBestTarget().getYaw());
+      yOffset = Rotation2d.fromDegrees(result.getBestTarget().getPitch());
+
+      primaryPhotonPoseEstimator.setReferencePose(primaryPose);
       Optional<EstimatedRobotPose> primaryEstimatedPose = primaryPhotonPoseEstimator.update(result);
       Optional<EstimatedRobotPose> secondaryEstimatedPose =
           secondaryPhotonPoseEstimator.update(result);
-      if (primaryEstimatedPose.isPresent()) {
-        inputs.primaryPose = new Pose3d(primaryEstimatedPose.get().estimatedPose.toPose2d());
-      }
-      if (secondaryEstimatedPose.isPresent()) {
-        inputs.secondaryPose = new Pose3d(secondaryEstimatedPose.get().estimatedPose.toPose2d());
+      if (primaryEstimatedPose.isEmpty()) {
+        continue;
       }
+      // Keep the full 3D solution so height, roll and pitch can be gated
+      primaryPose = primaryEstimatedPose.get().estimatedPose;
+      secondaryPose =
+          secondaryEstimatedPose.isPresent()
+              ? secondaryEstimatedPose.get().estimatedPose
+              : primaryPose;
+
+      mailbox.offer(
+          new VisionFrame(
+              frameTimestamp,
+              primaryPose,
+              secondaryPose,
+              totalTargets,
+              averageDistance,
+              maxAmbiguity,
+              fiducialIds,
+              fiducialTx,
+              fiducialTy,
+              fiducialDistances,
+              receiveTimestamp,
+              0.0,
+              pipelineLatency,
+              networkLatency));
     }
 
-    xOffset = inputs.xOffset;
-    yOffset = inputs.yOffset;
-    targetAquired = inputs.targetAquired;
-    totalTargets = inputs.totalTargets;
-    averageDistance = inputs.averageDistance;
-    frameTimestamp = inputs.frameTimestamp;
-    primaryPose = inputs.primaryPose;
-    secondaryPose = inputs.secondaryPose;
+    // The heartbeat increments once per processed frame, anything not in the queue was dropped
+    long heartbeat = heartbeatSubscriber.get();
+    framesReceived.addAndGet(rawResults.length);
+    if (lastHeartbeat >= 0 && heartbeat > lastHeartbeat) {
+      framesDropped.addAndGet(Math.max(0L, heartbeat - lastHeartbeat - rawResults.length));
+    }
+    lastHeartbeat = heartbeat;
   }
 
   @Override
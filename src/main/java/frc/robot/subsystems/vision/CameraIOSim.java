@@ -1,3 +1,243 @@
 package frc.robot.subsystems.vision;
 
-public class CameraIOSim implements CameraIO {}
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.FieldConstants;
+import frc.robot.subsystems.vision.CameraConstants.SimConstants;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+import lombok.Getter;
+
+/**
+ * Simulated AprilTag camera. Tags from the 2024 field layout are projected through the camera's
+ * mounting transform and field of view, and every visible frame produces a robot pose with
+ * distance dependent noise and latency. Frames are generated on the main loop from the true pose
+ * at each frame's capture time, on the simulated clock, so running faster than real time produces
+ * the same frames as running in real time.
+ */
+public class CameraIOSim implements CameraIO {
+  private final String name;
+  @Getter private final CameraType cameraType;
+  @Getter private final double horizontalFOV;
+  @Getter private final double verticalFOV;
+  @Getter private final double primaryXYStandardDeviationCoefficient;
+  @Getter private final double secondaryXYStandardDeviationCoefficient;
+
+  private final DoubleFunction<Pose2d> truePoseAt;
+  private final Random random;
+
+  private final int[] tagIds;
+  private final double[] tagX;
+  private final double[] tagY;
+  private final double[] tagZ;
+  private final double[] tagYaw;
+
+  private final double cameraX;
+  private final double cameraY;
+  private final double cameraZ;
+  private final double cameraYaw;
+  private final double cameraPitch;
+  private final double horizontalLimit;
+  private final double verticalLimit;
+
+  private Rotation2d xOffset = new Rotation2d();
+  private Rotation2d yOffset = new Rotation2d();
+  private boolean targetAquired = false;
+  private int totalTargets = 0;
+  private long framesReceived = 0;
+
+  private double nextCaptureTimestamp = 0.0;
+  private final int[] visibleIds;
+  private final double[] visibleTx;
+  private final double[] visibleTy;
+  private final double[] visibleDistances;
+
+  /**
+   * @param truePoseAt The robot's true pose at a timestamp, never the fused pose estimate
+   */
+  public CameraIOSim(
+      String name,
+      CameraType cameraType,
+      Transform3d robotToCamera,
+      DoubleFunction<Pose2d> truePoseAt) {
+    this.name = "sim-" + name;
+    this.cameraType = cameraType;
+    this.horizontalFOV = cameraType.horizontalFOV;
+    this.verticalFOV = cameraType.verticalFOV;
+    this.primaryXYStandardDeviationCoefficient = cameraType.primaryXYStandardDeviationCoefficient;
+    this.secondaryXYStandardDeviationCoefficient =
+        cameraType.secondaryXYStandardDeviationCoefficient;
+    this.truePoseAt = truePoseAt;
+    this.random = new Random(this.name.hashCode());
+
+    List<AprilTag> tags = FieldConstants.AprilTagConstants.FIELD_LAYOUT_2024.getTags();
+    tagIds = new int[tags.size()];
+    tagX = new double[tags.size()];
+    tagY = new double[tags.size()];
+    tagZ = new double[tags.size()];
+    tagYaw = new double[tags.size()];
+    for (int i = 0; i < tags.size(); i++) {
+      tagIds[i] = tags.get(i).ID;
+      tagX[i] = tags.get(i).pose.getX();
+      tagY[i] = tags.get(i).pose.getY();
+      tagZ[i] = tags.get(i).pose.getZ();
+      tagYaw[i] = tags.get(i).pose.getRotation().getZ();
+    }
+
+    cameraX = robotToCamera.getX();
+    cameraY = robotToCamera.getY();
+    cameraZ = robotToCamera.getZ();
+    cameraYaw = robotToCamera.getRotation().getZ();
+    cameraPitch = robotToCamera.getRotation().getY();
+    horizontalLimit = Math.tan(horizontalFOV / 2.0);
+    visibleIds = new int[tags.size()];
+    visibleTx = new double[tags.size()];
+    visibleTy = new double[tags.size()];
+    visibleDistances = new double[tags.size()];
+    verticalLimit = Math.tan(verticalFOV / 2.0);
+  }
+
+  @Override
+  public void updateInputs(CameraIOInputs inputs) {
+    inputs.xOffset = xOffset;
+    inputs.yOffset = yOffset;
+    inputs.targetAquired = targetAquired;
+    inputs.totalTargets = totalTargets;
+    inputs.framesReceived = framesReceived;
+    inputs.framesDropped = 0;
+  }
+
+  @Override
+  public void simulateFrames(VisionMailbox mailbox) {
+    double timestamp = Timer.getFPGATimestamp();
+    double framePeriod = 1.0 / SimConstants.FRAME_RATE;
+    if (nextCaptureTimestamp == 0.0) {
+      nextCaptureTimestamp = timestamp;
+    }
+
+    // Publish every frame whose capture plus processing latency has elapsed on the sim clock
+    while (nextCaptureTimestamp + SimConstants.LATENCY <= timestamp) {
+      double captureTimestamp =
+          nextCaptureTimestamp + (random.nextDouble() - 0.5) * SimConstants.LATENCY_JITTER;
+      nextCaptureTimestamp += framePeriod;
+      framesReceived++;
+      simulateFrame(truePoseAt.apply(captureTimestamp), captureTimestamp, mailbox);
+    }
+  }
+
+  private void simulateFrame(Pose2d pose, double captureTimestamp, VisionMailbox mailbox) {
+    double robotCos = pose.getRotation().getCos();
+    double robotSin = pose.getRotation().getSin();
+    double fieldCameraX = pose.getX() + robotCos * cameraX - robotSin * cameraY;
+    double fieldCameraY = pose.getY() + robotSin * cameraX + robotCos * cameraY;
+    double fieldCameraYaw = pose.getRotation().getRadians() + cameraYaw;
+    double yawCos = Math.cos(fieldCameraYaw);
+    double yawSin = Math.sin(fieldCameraYaw);
+    double pitchCos = Math.cos(cameraPitch);
+    double pitchSin = Math.sin(cameraPitch);
+
+    int visibleTags = 0;
+    double totalDistance = 0.0;
+    double closestDistance = Double.POSITIVE_INFINITY;
+    double closestTx = 0.0;
+    double closestTy = 0.0;
+    for (int i = 0; i < tagX.length; i++) {
+      double dx = tagX[i] - fieldCameraX;
+      double dy = tagY[i] - fieldCameraY;
+      double dz = tagZ[i] - cameraZ;
+      if (Math.cos(tagYaw[i]) * dx + Math.sin(tagYaw[i]) * dy > 0.0) {
+        continue;
+      }
+
+      double forward = yawCos * dx + yawSin * dy;
+      double left = -yawSin * dx + yawCos * dy;
+      double depth = pitchCos * forward - pitchSin * dz;
+      double up = pitchSin * forward + pitchCos * dz;
+      double distance = Math.sqrt(forward * forward + left * left + dz * dz);
+      if (depth <= 0.0
+          || distance > SimConstants.MAX_TAG_DISTANCE
+          || Math.abs(left / depth) > horizontalLimit
+          || Math.abs(up / depth) > verticalLimit) {
+        continue;
+      }
+
+      double tx = -Math.atan2(left, depth);
+      double ty = Math.atan2(up, depth);
+      visibleIds[visibleTags] = tagIds[i];
+      visibleTx[visibleTags] = tx + random.nextGaussian() * SimConstants.ANGLE_NOISE;
+      visibleTy[visibleTags] = ty + random.nextGaussian() * SimConstants.ANGLE_NOISE;
+      visibleDistances[visibleTags] = distance;
+      visibleTags++;
+      totalDistance += distance;
+      if (distance < closestDistance) {
+        closestDistance = distance;
+        closestTx = tx;
+        closestTy = ty;
+      }
+    }
+
+    targetAquired = visibleTags > 0;
+    totalTargets = visibleTags;
+    if (visibleTags == 0) {
+      return;
+    }
+    xOffset = new Rotation2d(closestTx);
+    yOffset = new Rotation2d(closestTy);
+
+    double averageDistance = totalDistance / visibleTags;
+    double xyNoise =
+        Math.max(
+            SimConstants.MIN_XY_NOISE,
+            SimConstants.XY_NOISE_COEFFICIENT * averageDistance * averageDistance / visibleTags);
+    double ambiguity =
+        visibleTags == 1 ? random.nextDouble() * SimConstants.MAX_SINGLE_TAG_AMBIGUITY : 0.0;
+    Pose3d primaryPose = noisyPose(pose, xyNoise);
+    // Like MegaTag1, only offer a second solution when more than one tag is in view
+    Pose3d secondaryPose = visibleTags > 1 ? noisyPose(pose, xyNoise) : primaryPose;
+
+    mailbox.offer(
+        new VisionFrame(
+            captureTimestamp,
+            primaryPose,
+            secondaryPose,
+            visibleTags,
+            averageDistance,
+            ambiguity,
+            Arrays.copyOf(visibleIds, visibleTags),
+            Arrays.copyOf(visibleTx, visibleTags),
+            Arrays.copyOf(visibleTy, visibleTags),
+            Arrays.copyOf(visibleDistances, visibleTags),
+            captureTimestamp + SimConstants.LATENCY,
+            0.0,
+            SimConstants.LATENCY,
+            0.0));
+  }
+
+  private Pose3d noisyPose(Pose2d pose, double xyNoise) {
+    return new Pose3d(
+        pose.getX() + random.nextGaussian() * xyNoise,
+        pose.getY() + random.nextGaussian() * xyNoise,
+        0.0,
+        new Rotation3d(
+            0.0,
+            0.0,
+            pose.getRotation().getRadians() + random.nextGaussian() * SimConstants.THETA_NOISE));
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
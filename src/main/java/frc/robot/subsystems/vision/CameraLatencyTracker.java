@@ -0,0 +1,93 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.subsystems.vision.CameraConstants.LatencyConstants;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
+import frc.robot.util.RollingHistogram;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Breaks a camera's end to end latency into stages and keeps a rolling histogram of each one.
+ * Capture and pipeline latency come from the camera. Network latency runs from the camera
+ * publishing a frame until the worker drains it on the RIO, so it includes the wait in the
+ * NetworkTables queue. Worker latency is the time from there until the main loop picks the frame
+ * up, and estimator latency is the time from there until the pose estimator consumes it.
+ */
+public class CameraLatencyTracker {
+  private static final Policy LOG_POLICY = Policy.decimated(5);
+
+  private final RollingHistogram[] histograms = new RollingHistogram[Stage.values().length];
+  private final String[] p50Keys = new String[Stage.values().length];
+  private final String[] p95Keys = new String[Stage.values().length];
+  private final String[] maxKeys = new String[Stage.values().length];
+  private final String[] histogramKeys = new String[Stage.values().length];
+
+  public CameraLatencyTracker(String cameraName) {
+    for (Stage stage : Stage.values()) {
+      int i = stage.ordinal();
+      histograms[i] =
+          new RollingHistogram(
+              LatencyConstants.WINDOW_SIZE, LatencyConstants.MAX_LATENCY, LatencyConstants.BINS);
+      String key = "Vision/Latency/" + cameraName + "/" + stage.name() + "/";
+      p50Keys[i] = key + "P50 Ms";
+      p95Keys[i] = key + "P95 Ms";
+      maxKeys[i] = key + "Max Ms";
+      histogramKeys[i] = key + "Histogram";
+    }
+  }
+
+  /**
+   * Returns the time in seconds between a value being published and received, or NaN if the
+   * publisher's clock is not synced closely enough to trust it.
+   *
+   * @param receiveMicros Local time the value was read from the queue, from {@link
+   *     Logger#getRealTimestamp()}
+   * @param publishMicros The value's NetworkTables timestamp, which is the publisher's time synced
+   *     to the RIO
+   */
+  public static double getNetworkLatency(long receiveMicros, long publishMicros) {
+    if (publishMicros <= 0) {
+      return Double.NaN;
+    }
+    double networkLatency = (receiveMicros - publishMicros) / 1e6;
+    return networkLatency >= 0.0 && networkLatency < LatencyConstants.MAX_NETWORK_LATENCY
+        ? networkLatency
+        : Double.NaN;
+  }
+
+  public void recordFrame(
+      double captureLatency, double pipelineLatency, double networkLatency, double workerLatency) {
+    histograms[Stage.CAPTURE.ordinal()].add(captureLatency);
+    histograms[Stage.PIPELINE.ordinal()].add(pipelineLatency);
+    histograms[Stage.NETWORK.ordinal()].add(networkLatency);
+    histograms[Stage.WORKER.ordinal()].add(workerLatency);
+  }
+
+  public void recordIngest(double estimatorLatency, double totalLatency) {
+    histograms[Stage.ESTIMATOR.ordinal()].add(estimatorLatency);
+    histograms[Stage.TOTAL.ordinal()].add(totalLatency);
+  }
+
+  public void log() {
+    for (int i = 0; i < histograms.length; i++) {
+      // Each stage's statistics are logged together, a few stages per loop
+      if (!LoggedOutputs.isDue(histogramKeys[i], LOG_POLICY)) {
+        continue;
+      }
+      Logger.recordOutput(p50Keys[i], histograms[i].getPercentile(0.5) * 1e3);
+      Logger.recordOutput(p95Keys[i], histograms[i].getPercentile(0.95) * 1e3);
+      Logger.recordOutput(maxKeys[i], histograms[i].getMax() * 1e3);
+      // The histogram keeps counting into the same array, the log needs its own copy
+      Logger.recordOutput(histogramKeys[i], histograms[i].getBinCounts().clone());
+    }
+  }
+
+  private static enum Stage {
+    CAPTURE,
+    PIPELINE,
+    NETWORK,
+    WORKER,
+    ESTIMATOR,
+    TOTAL
+  }
+}
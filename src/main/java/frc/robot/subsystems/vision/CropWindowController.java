@@ -0,0 +1,167 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import frc.robot.FieldConstants;
+import frc.robot.subsystems.vision.CameraConstants.CropConstants;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Shrinks a camera's processing region to where AprilTags are expected to appear. Every tag in the
+ * field layout is projected through the camera's mounting transform from the current pose
+ * estimate, and the bounding box of the visible tags is padded by how uncertain that estimate is.
+ * Falls back to the full frame whenever the camera loses its targets or no tags should be visible.
+ */
+public class CropWindowController {
+  private final Camera camera;
+  private final String logKey;
+
+  // Tag corners are not needed, the center plus a size margin is enough
+  private final double[] tagX;
+  private final double[] tagY;
+  private final double[] tagZ;
+  private final double[] tagYaw;
+
+  private final double cameraX;
+  private final double cameraY;
+  private final double cameraZ;
+  private final double cameraYaw;
+  private final double cameraPitch;
+  private final double horizontalScale;
+  private final double verticalScale;
+
+  private final double[] window = new double[] {-1.0, 1.0, -1.0, 1.0};
+  private final double[] lastWindow =
+      new double[] {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+  private int loopsWithoutTarget = 0;
+
+  public CropWindowController(Camera camera) {
+    this.camera = camera;
+    this.logKey = "Vision/Crop Windows/" + camera.getName();
+
+    List<AprilTag> tags = FieldConstants.AprilTagConstants.FIELD_LAYOUT_2024.getTags();
+    tagX = new double[tags.size()];
+    tagY = new double[tags.size()];
+    tagZ = new double[tags.size()];
+    tagYaw = new double[tags.size()];
+    for (int i = 0; i < tags.size(); i++) {
+      tagX[i] = tags.get(i).pose.getX();
+      tagY[i] = tags.get(i).pose.getY();
+      tagZ[i] = tags.get(i).pose.getZ();
+      tagYaw[i] = tags.get(i).pose.getRotation().getZ();
+    }
+
+    Transform3d robotToCamera = camera.getRobotToCamera();
+    cameraX = robotToCamera.getX();
+    cameraY = robotToCamera.getY();
+    cameraZ = robotToCamera.getZ();
+    cameraYaw = robotToCamera.getRotation().getZ();
+    cameraPitch = robotToCamera.getRotation().getY();
+    horizontalScale = 1.0 / Math.tan(camera.getHorizontalFOV() / 2.0);
+    verticalScale = 1.0 / Math.tan(camera.getVerticalFOV() / 2.0);
+  }
+
+  /**
+   * Recomputes the crop window and sends it to the camera if it moved.
+   *
+   * @param robotPose Current pose estimate
+   * @param timestamp Current time in seconds
+   */
+  public void update(Pose2d robotPose, double timestamp) {
+    loopsWithoutTarget = camera.getTargetAquired() ? 0 : loopsWithoutTarget + 1;
+    double positionUncertainty =
+        Math.min(
+            CropConstants.MAX_POSITION_UNCERTAINTY,
+            CropConstants.BASE_POSITION_UNCERTAINTY
+                + CropConstants.POSITION_UNCERTAINTY_GROWTH_RATE
+                    * (timestamp - camera.getGate().getLastAcceptedTimestamp()));
+
+    if (loopsWithoutTarget > CropConstants.LOST_TARGET_LOOPS
+        || !computeWindow(robotPose, positionUncertainty)) {
+      window[0] = -1.0;
+      window[1] = 1.0;
+      window[2] = -1.0;
+      window[3] = 1.0;
+    }
+
+    if (Math.abs(window[0] - lastWindow[0]) > CropConstants.UPDATE_DEADBAND
+        || Math.abs(window[1] - lastWindow[1]) > CropConstants.UPDATE_DEADBAND
+        || Math.abs(window[2] - lastWindow[2]) > CropConstants.UPDATE_DEADBAND
+        || Math.abs(window[3] - lastWindow[3]) > CropConstants.UPDATE_DEADBAND
+        || Double.isNaN(lastWindow[0])) {
+      camera.setCropWindow(window[0], window[1], window[2], window[3]);
+      System.arraycopy(window, 0, lastWindow, 0, window.length);
+    }
+    Logger.recordOutput(logKey, lastWindow);
+  }
+
+  /**
+   * Projects every tag into the image and fills the window with the padded bounding box.
+   *
+   * @return false if no tag is expected to be visible
+   */
+  private boolean computeWindow(Pose2d robotPose, double positionUncertainty) {
+    double robotCos = robotPose.getRotation().getCos();
+    double robotSin = robotPose.getRotation().getSin();
+    double fieldCameraX = robotPose.getX() + robotCos * cameraX - robotSin * cameraY;
+    double fieldCameraY = robotPose.getY() + robotSin * cameraX + robotCos * cameraY;
+    double fieldCameraYaw = robotPose.getRotation().getRadians() + cameraYaw;
+    double yawCos = Math.cos(fieldCameraYaw);
+    double yawSin = Math.sin(fieldCameraYaw);
+    double pitchCos = Math.cos(cameraPitch);
+    double pitchSin = Math.sin(cameraPitch);
+
+    double xMin = Double.POSITIVE_INFINITY;
+    double xMax = Double.NEGATIVE_INFINITY;
+    double yMin = Double.POSITIVE_INFINITY;
+    double yMax = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < tagX.length; i++) {
+      double dx = tagX[i] - fieldCameraX;
+      double dy = tagY[i] - fieldCameraY;
+      double dz = tagZ[i] - cameraZ;
+
+      // Skip tags facing away from the camera
+      if (Math.cos(tagYaw[i]) * dx + Math.sin(tagYaw[i]) * dy > 0.0) {
+        continue;
+      }
+
+      // Field frame to camera frame, yaw first and then pitch (positive pitch tilts down)
+      double forward = yawCos * dx + yawSin * dy;
+      double left = -yawSin * dx + yawCos * dy;
+      double depth = pitchCos * forward - pitchSin * dz;
+      double up = pitchSin * forward + pitchCos * dz;
+      double distance = Math.sqrt(forward * forward + left * left + dz * dz);
+      if (depth < CropConstants.MIN_TAG_DEPTH || distance > CropConstants.MAX_TAG_DISTANCE) {
+        continue;
+      }
+
+      // Image x grows to the right and image y grows upward
+      double x = -left / depth * horizontalScale;
+      double y = up / depth * verticalScale;
+      if (Math.abs(x) > 1.0 || Math.abs(y) > 1.0) {
+        continue;
+      }
+
+      double padAngle =
+          Math.atan((CropConstants.TAG_SIZE / 2.0 + positionUncertainty) / distance)
+              + CropConstants.HEADING_UNCERTAINTY;
+      double padX = Math.tan(padAngle) * horizontalScale;
+      double padY = Math.tan(padAngle) * verticalScale;
+      xMin = Math.min(xMin, x - padX);
+      xMax = Math.max(xMax, x + padX);
+      yMin = Math.min(yMin, y - padY);
+      yMax = Math.max(yMax, y + padY);
+    }
+
+    if (xMin > xMax) {
+      return false;
+    }
+    window[0] = Math.max(-1.0, xMin);
+    window[1] = Math.min(1.0, xMax);
+    window[2] = Math.max(-1.0, yMin);
+    window[3] = Math.min(1.0, yMax);
+    return true;
+  }
+}
@@ -0,0 +1,273 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.FieldConstants;
+import frc.robot.subsystems.vision.CameraConstants.MultiCameraSolverConstants;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Solves one robot pose from raw AprilTag observations across every camera. Each observation is
+ * the horizontal and vertical angle to a tag center, and a small Gauss-Newton minimizes the angle
+ * residuals over (x, y, theta) with a weak prior around the odometry seed. All working storage is
+ * allocated up front, so adding observations and solving do not allocate.
+ */
+public class MultiCameraPoseSolver {
+  private static final double JACOBIAN_STEP = 1e-6;
+
+  private final int maxObservations;
+
+  // Tag positions indexed by tag ID, NaN for IDs not in the layout
+  private final double[] tagX;
+  private final double[] tagY;
+  private final double[] tagZ;
+
+  // Observations, with camera mounts relative to the robot at the reference time
+  private final double[] observedTagX;
+  private final double[] observedTagY;
+  private final double[] observedTagZ;
+  private final double[] observedTx;
+  private final double[] observedTy;
+  private final double[] cameraX;
+  private final double[] cameraY;
+  private final double[] cameraZ;
+  private final double[] cameraYaw;
+  private final double[] cameraPitch;
+  private int observationCount = 0;
+
+  private final double[] residuals;
+  private final double[] perturbedResiduals;
+  private final double[] jacobian;
+
+  @Getter private double x = 0.0;
+  @Getter private double y = 0.0;
+  @Getter private double theta = 0.0;
+  @Getter private double rmsError = Double.POSITIVE_INFINITY;
+  @Getter private int iterations = 0;
+
+  public MultiCameraPoseSolver(int maxObservations) {
+    this.maxObservations = maxObservations;
+
+    List<AprilTag> tags = FieldConstants.AprilTagConstants.FIELD_LAYOUT_2024.getTags();
+    int maxId = 0;
+    for (AprilTag tag : tags) {
+      maxId = Math.max(maxId, tag.ID);
+    }
+    tagX = new double[maxId + 1];
+    tagY = new double[maxId + 1];
+    tagZ = new double[maxId + 1];
+    Arrays.fill(tagX, Double.NaN);
+    for (AprilTag tag : tags) {
+      tagX[tag.ID] = tag.pose.getX();
+      tagY[tag.ID] = tag.pose.getY();
+      tagZ[tag.ID] = tag.pose.getZ();
+    }
+
+    observedTagX = new double[maxObservations];
+    observedTagY = new double[maxObservations];
+    observedTagZ = new double[maxObservations];
+    observedTx = new double[maxObservations];
+    observedTy = new double[maxObservations];
+    cameraX = new double[maxObservations];
+    cameraY = new double[maxObservations];
+    cameraZ = new double[maxObservations];
+    cameraYaw = new double[maxObservations];
+    cameraPitch = new double[maxObservations];
+    residuals = new double[2 * maxObservations];
+    perturbedResiduals = new double[2 * maxObservations];
+    jacobian = new double[3 * 2 * maxObservations];
+  }
+
+  /** Clears all observations. */
+  public void reset() {
+    observationCount = 0;
+    rmsError = Double.POSITIVE_INFINITY;
+    iterations = 0;
+  }
+
+  public int getObservationCount() {
+    return observationCount;
+  }
+
+  /**
+   * Adds a single tag observation.
+   *
+   * @param tagId Fiducial ID
+   * @param tx Horizontal angle to the tag center in radians, positive right
+   * @param ty Vertical angle to the tag center in radians, positive up
+   * @param mountX Camera x in the reference robot frame
+   * @param mountY Camera y in the reference robot frame
+   * @param mountZ Camera height
+   * @param mountYaw Camera yaw in the reference robot frame
+   * @param mountPitch Camera pitch, positive tilts down
+   * @return false if the tag is unknown or the solver is full
+   */
+  public boolean addObservation(
+      int tagId,
+      double tx,
+      double ty,
+      double mountX,
+      double mountY,
+      double mountZ,
+      double mountYaw,
+      double mountPitch) {
+    if (observationCount >= maxObservations
+        || tagId < 0
+        || tagId >= tagX.length
+        || Double.isNaN(tagX[tagId])) {
+      return false;
+    }
+    int i = observationCount++;
+    observedTagX[i] = tagX[tagId];
+    observedTagY[i] = tagY[tagId];
+    observedTagZ[i] = tagZ[tagId];
+    observedTx[i] = tx;
+    observedTy[i] = ty;
+    cameraX[i] = mountX;
+    cameraY[i] = mountY;
+    cameraZ[i] = mountZ;
+    cameraYaw[i] = mountYaw;
+    cameraPitch[i] = mountPitch;
+    return true;
+  }
+
+  /**
+   * Runs Gauss-Newton from the seed pose.
+   *
+   * @return false if there are too few observations to constrain the pose
+   */
+  public boolean solve(Pose2d seed) {
+    x = seed.getX();
+    y = seed.getY();
+    theta = seed.getRotation().getRadians();
+    iterations = 0;
+    if (observationCount < 2) {
+      rmsError = Double.POSITIVE_INFINITY;
+      return false;
+    }
+
+    int residualCount = 2 * observationCount;
+    double angleWeight = 1.0 / square(MultiCameraSolverConstants.ANGLE_STANDARD_DEVIATION);
+    double xyPriorWeight = 1.0 / square(MultiCameraSolverConstants.PRIOR_XY_STANDARD_DEVIATION);
+    double thetaPriorWeight =
+        1.0 / square(MultiCameraSolverConstants.PRIOR_THETA_STANDARD_DEVIATION);
+
+    while (iterations < MultiCameraSolverConstants.MAX_ITERATIONS) {
+      iterations++;
+      computeResiduals(x, y, theta, residuals);
+      computeResiduals(x + JACOBIAN_STEP, y, theta, perturbedResiduals);
+      fillJacobianColumn(0, residualCount);
+      computeResiduals(x, y + JACOBIAN_STEP, theta, perturbedResiduals);
+      fillJacobianColumn(1, residualCount);
+      computeResiduals(x, y, theta + JACOBIAN_STEP, perturbedResiduals);
+      fillJacobianColumn(2, residualCount);
+
+      // Normal equations H * delta = -g, with the prior pulling toward the seed
+      double h00 = xyPriorWeight;
+      double h01 = 0.0;
+      double h02 = 0.0;
+      double h11 = xyPriorWeight;
+      double h12 = 0.0;
+      double h22 = thetaPriorWeight;
+      double g0 = xyPriorWeight * (x - seed.getX());
+      double g1 = xyPriorWeight * (y - seed.getY());
+      double g2 = thetaPriorWeight * (theta - seed.getRotation().getRadians());
+      for (int i = 0; i < residualCount; i++) {
+        double j0 = jacobian[i];
+        double j1 = jacobian[residualCount + i];
+        double j2 = jacobian[2 * residualCount + i];
+        double r = residuals[i];
+        h00 += angleWeight * j0 * j0;
+        h01 += angleWeight * j0 * j1;
+        h02 += angleWeight * j0 * j2;
+        h11 += angleWeight * j1 * j1;
+        h12 += angleWeight * j1 * j2;
+        h22 += angleWeight * j2 * j2;
+        g0 += angleWeight * j0 * r;
+        g1 += angleWeight * j1 * r;
+        g2 += angleWeight * j2 * r;
+      }
+
+      // Symmetric 3x3 solve by Cramer's rule
+      double c00 = h11 * h22 - h12 * h12;
+      double c01 = h02 * h12 - h01 * h22;
+      double c02 = h01 * h12 - h02 * h11;
+      double determinant = h00 * c00 + h01 * c01 + h02 * c02;
+      if (Math.abs(determinant) < 1e-12) {
+        rmsError = Double.POSITIVE_INFINITY;
+        return false;
+      }
+      double c11 = h00 * h22 - h02 * h02;
+      double c12 = h01 * h02 - h00 * h12;
+      double c22 = h00 * h11 - h01 * h01;
+      double dx = -(c00 * g0 + c01 * g1 + c02 * g2) / determinant;
+      double dy = -(c01 * g0 + c11 * g1 + c12 * g2) / determinant;
+      double dTheta = -(c02 * g0 + c12 * g1 + c22 * g2) / determinant;
+      x += dx;
+      y += dy;
+      theta += dTheta;
+
+      if (Math.abs(dx) + Math.abs(dy) + Math.abs(dTheta)
+          < MultiCameraSolverConstants.CONVERGENCE_THRESHOLD) {
+        break;
+      }
+    }
+
+    double cost = computeResiduals(x, y, theta, residuals);
+    rmsError = Math.sqrt(cost / residualCount);
+    return true;
+  }
+
+  public Pose2d getPose() {
+    return new Pose2d(x, y, new Rotation2d(theta));
+  }
+
+  /** Fills predicted minus observed angles and returns the sum of squares. */
+  private double computeResiduals(double robotX, double robotY, double robotTheta, double[] out) {
+    double robotCos = Math.cos(robotTheta);
+    double robotSin = Math.sin(robotTheta);
+    double cost = 0.0;
+    for (int i = 0; i < observationCount; i++) {
+      double fieldCameraX = robotX + robotCos * cameraX[i] - robotSin * cameraY[i];
+      double fieldCameraY = robotY + robotSin * cameraX[i] + robotCos * cameraY[i];
+      double fieldCameraYaw = robotTheta + cameraYaw[i];
+      double yawCos = Math.cos(fieldCameraYaw);
+      double yawSin = Math.sin(fieldCameraYaw);
+      double pitchCos = Math.cos(cameraPitch[i]);
+      double pitchSin = Math.sin(cameraPitch[i]);
+
+      double dx = observedTagX[i] - fieldCameraX;
+      double dy = observedTagY[i] - fieldCameraY;
+      double dz = observedTagZ[i] - cameraZ[i];
+      double forward = yawCos * dx + yawSin * dy;
+      double left = -yawSin * dx + yawCos * dy;
+      double depth = pitchCos * forward - pitchSin * dz;
+      double up = pitchSin * forward + pitchCos * dz;
+
+      double txResidual = angleDifference(-Math.atan2(left, depth), observedTx[i]);
+      double tyResidual = angleDifference(Math.atan2(up, depth), observedTy[i]);
+      out[2 * i] = txResidual;
+      out[2 * i + 1] = tyResidual;
+      cost += txResidual * txResidual + tyResidual * tyResidual;
+    }
+    return cost;
+  }
+
+  private void fillJacobianColumn(int column, int residualCount) {
+    int offset = column * residualCount;
+    for (int i = 0; i < residualCount; i++) {
+      jacobian[offset + i] = (perturbedResiduals[i] - residuals[i]) / JACOBIAN_STEP;
+    }
+  }
+
+  private static double angleDifference(double a, double b) {
+    return Math.IEEEremainder(a - b, 2.0 * Math.PI);
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
@@ -0,0 +1,79 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.RobotState.ControlData;
+import frc.robot.subsystems.vision.CameraConstants.PipelineConstants;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
+
+/**
+ * Picks an AprilTag camera's pipeline from the robot state. Aiming at the speaker holds the long
+ * range pipeline, and driving fast drops to the low resolution high FPS pipeline. Note detection
+ * runs on its own camera, so pose cameras never leave AprilTag pipelines. Speed uses hysteresis
+ * and every switch is held for a minimum dwell time so pipelines do not thrash.
+ */
+public class PipelineScheduler {
+  private static final Policy TIME_POLICY = Policy.decimated(10);
+
+  private final Camera camera;
+  private final String currentKey;
+  private final String[] timeKeys = new String[VisionPipeline.values().length];
+  private final double[] timeInPipeline = new double[VisionPipeline.values().length];
+
+  private VisionPipeline current = null;
+  private boolean drivingFast = false;
+  private double lastSwitchTimestamp = Double.NEGATIVE_INFINITY;
+  private double lastTimestamp = Double.NaN;
+
+  public PipelineScheduler(Camera camera) {
+    this.camera = camera;
+
+    String logKey = "Vision/Pipelines/" + camera.getName();
+    currentKey = logKey + "/Current";
+    for (VisionPipeline pipeline : VisionPipeline.values()) {
+      timeKeys[pipeline.ordinal()] = logKey + "/Seconds In " + pipeline.name();
+    }
+  }
+
+  /**
+   * Selects and applies a pipeline.
+   *
+   * @param controlData Current control data
+   * @param robotSpeed Field relative speed in meters per second
+   * @param timestamp Current time in seconds
+   */
+  public void update(ControlData controlData, double robotSpeed, double timestamp) {
+    if (current != null && !Double.isNaN(lastTimestamp)) {
+      timeInPipeline[current.ordinal()] += timestamp - lastTimestamp;
+    }
+    lastTimestamp = timestamp;
+
+    drivingFast =
+        drivingFast
+            ? robotSpeed > PipelineConstants.FAST_EXIT_SPEED
+            : robotSpeed > PipelineConstants.FAST_ENTER_SPEED;
+
+    VisionPipeline desired;
+    if (controlData.hasNote()
+        && Math.abs(controlData.speakerRobotAngle().getRadians())
+            < PipelineConstants.AIMING_ANGLE_TOLERANCE) {
+      desired = VisionPipeline.APRILTAG_LONG_RANGE;
+    } else if (drivingFast) {
+      desired = VisionPipeline.APRILTAG_HIGH_FPS;
+    } else {
+      desired = VisionPipeline.APRILTAG_LONG_RANGE;
+    }
+
+    if (desired != current
+        && (current == null
+            || timestamp - lastSwitchTimestamp >= PipelineConstants.MIN_DWELL_TIME)) {
+      camera.setPipeline(desired.index);
+      current = desired;
+      lastSwitchTimestamp = timestamp;
+    }
+
+    LoggedOutputs.record(currentKey, current, Policy.ON_CHANGE);
+    for (int i = 0; i < timeKeys.length; i++) {
+      LoggedOutputs.record(timeKeys[i], timeInPipeline[i], TIME_POLICY);
+    }
+  }
+}
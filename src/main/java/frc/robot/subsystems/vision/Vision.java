@@ -1,51 +1,136 @@
 package frc.robot.subsystems.vision;
 
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import java.util.Arrays;
-import java.util.Optional;
+import frc.robot.RobotState;
+import frc.robot.RobotState.ControlData;
+import frc.robot.util.LoopProfiler;
 import lombok.Getter;
 
 public class Vision extends SubsystemBase {
+  private static final int OBSERVATIONS_PER_CAMERA = 2 * CameraConstants.MAILBOX_CAPACITY;
+
+  private final LoopProfiler.Phase profilerPhase = LoopProfiler.getPhase("Subsystems/Vision");
+
   @Getter private final Camera[] cameras;
+  @Getter private final VisionObservation[] observations;
+  private final CropWindowController[] cropWindowControllers;
+  private final PipelineScheduler[] pipelineSchedulers;
 
   public Vision(Camera... cameras) {
     this.cameras = cameras;
+
+    // Primary and secondary slots alternate for every frame a camera can deliver in one loop
+    observations = new VisionObservation[cameras.length * OBSERVATIONS_PER_CAMERA];
+    for (int i = 0; i < observations.length; i++) {
+      observations[i] = new VisionObservation(i / OBSERVATIONS_PER_CAMERA, i % 2 == 0);
+    }
+
+    cropWindowControllers = new CropWindowController[cameras.length];
+    pipelineSchedulers = new PipelineScheduler[cameras.length];
+    for (int i = 0; i < cameras.length; i++) {
+      cropWindowControllers[i] = new CropWindowController(cameras[i]);
+      pipelineSchedulers[i] = new PipelineScheduler(cameras[i]);
+    }
   }
 
   @Override
   public void periodic() {
-    for (Camera camera : cameras) {
-      camera.periodic();
+    profilerPhase.start();
+    for (int i = 0; i < cameras.length; i++) {
+      cameras[i].periodic();
+      fillObservations(i);
     }
-  }
 
-  public boolean getValidTarget() {
-    boolean isValidTarget = true;
-    for (Camera camera : cameras) {
-      isValidTarget = camera.getTargetAquired();
+    Pose2d robotPose = RobotState.getRobotPose();
+    double timestamp = Timer.getFPGATimestamp();
+    for (CropWindowController cropWindowController : cropWindowControllers) {
+      cropWindowController.update(robotPose, timestamp);
     }
 
-    return isValidTarget;
+    ControlData controlData = RobotState.getControlData();
+    double robotSpeed = RobotState.getRobotSpeed();
+    for (PipelineScheduler pipelineScheduler : pipelineSchedulers) {
+      pipelineScheduler.update(controlData, robotSpeed, timestamp);
+    }
+    profilerPhase.stop();
   }
 
-  @SuppressWarnings("unchecked")
-  public Optional<Pose3d>[] getPrimaryVisionPoses() {
-    return Arrays.stream(cameras)
-        .map((Camera camera) -> Optional.of(camera.getPrimaryPose()))
-        .toArray(Optional[]::new);
+  /**
+   * Sends the current field relative heading to every camera and flushes NetworkTables so the
+   * cameras can use it for the very next frame. MegaTag2 depends on this being called every loop.
+   */
+  public void setRobotOrientation(Rotation2d heading, double yawVelocityRadPerSec) {
+    for (Camera camera : cameras) {
+      camera.setRobotOrientation(heading, yawVelocityRadPerSec);
+    }
+    NetworkTableInstance.getDefault().flush();
   }
 
-  @SuppressWarnings("unchecked")
-  public Optional<Pose3d>[] getSecondaryVisionPoses() {
-    return Arrays.stream(cameras)
-        .map((Camera camera) -> Optional.of(camera.getSecondaryPose()))
-        .toArray(Optional[]::new);
+  /** Refills a camera's observations in place from its logged inputs. */
+  private void fillObservations(int cameraIndex) {
+    Camera camera = cameras[cameraIndex];
+    double[] frameTimestamps = camera.getFrameTimestamps();
+    Pose3d[] primaryPoses = camera.getPrimaryPoses();
+    Pose3d[] secondaryPoses = camera.getSecondaryPoses();
+    int[] tagCounts = camera.getTagCounts();
+    double[] averageDistances = camera.getAverageDistances();
+    double[] ambiguities = camera.getAmbiguities();
+    double[] receiveTimestamps = camera.getReceiveTimestamps();
+    double drainTimestamp = camera.getDrainTimestamp();
+
+    int base = cameraIndex * OBSERVATIONS_PER_CAMERA;
+    int frameCount = Math.min(frameTimestamps.length, OBSERVATIONS_PER_CAMERA / 2);
+    int frameOffset = frameTimestamps.length - frameCount;
+    for (int i = 0; i < OBSERVATIONS_PER_CAMERA / 2; i++) {
+      VisionObservation primary = observations[base + 2 * i];
+      VisionObservation secondary = observations[base + 2 * i + 1];
+      if (i >= frameCount) {
+        primary.clear();
+        secondary.clear();
+        continue;
+      }
+
+      int frame = frameOffset + i;
+      boolean latestFrame = frame == frameTimestamps.length - 1;
+      primary.set(
+          primaryPoses[frame],
+          frameTimestamps[frame],
+          receiveTimestamps[frame],
+          drainTimestamp,
+          tagCounts[frame],
+          averageDistances[frame],
+          ambiguities[frame],
+          latestFrame);
+      // Cameras without a separate secondary solution repeat the primary pose
+      if (secondaryPoses[frame].equals(primaryPoses[frame])) {
+        secondary.clear();
+      } else {
+        secondary.set(
+            secondaryPoses[frame],
+            frameTimestamps[frame],
+            receiveTimestamps[frame],
+            drainTimestamp,
+            tagCounts[frame],
+            averageDistances[frame],
+            ambiguities[frame],
+            latestFrame);
+      }
+    }
   }
 
-  public double[] getFrameTimestamps() {
-    return Arrays.stream(cameras)
-        .mapToDouble((Camera camera) -> camera.getFrameTimestamp())
-        .toArray();
+  /** Returns true if any camera currently sees a target. */
+  public boolean getValidTarget() {
+    for (Camera camera : cameras) {
+      if (camera.getTargetAquired()) {
+        return true;
+      }
+    }
+
+    return false;
   }
 }
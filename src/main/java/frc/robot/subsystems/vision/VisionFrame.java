@@ -0,0 +1,25 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+/**
+ * Immutable result of solving a single camera frame, produced by a {@link VisionWorker}. Along
+ * with the camera's own pose solutions, each frame carries the raw tag observations it was built
+ * from. Tag angles are in radians from the camera's principal point, positive right and up.
+ * Latencies are in seconds, and the network latency is NaN when the camera's clock is not synced.
+ */
+public record VisionFrame(
+    double timestamp,
+    Pose3d primaryPose,
+    Pose3d secondaryPose,
+    int tagCount,
+    double averageDistance,
+    double maxAmbiguity,
+    int[] fiducialIds,
+    double[] fiducialTx,
+    double[] fiducialTy,
+    double[] fiducialDistances,
+    double receiveTimestamp,
+    double captureLatency,
+    double pipelineLatency,
+    double networkLatency) {}
@@ -0,0 +1,169 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.FieldConstants;
+import frc.robot.subsystems.vision.CameraConstants.GatingConstants;
+import frc.robot.util.LoggedOutputs;
+import frc.robot.util.LoggedOutputs.Policy;
+import lombok.Getter;
+
+/**
+ * Decides whether a single vision measurement should be fed to the pose estimator, and how much it
+ * should be trusted. Each camera owns one gate, which keeps running rejection counts for logging.
+ * Evaluating a measurement does not allocate.
+ */
+public class VisionGate {
+  private final long[] rejectionCounts = new long[RejectReason.values().length];
+  private final String[] rejectionKeys = new String[RejectReason.values().length];
+  private int consecutiveJumpRejections = 0;
+
+  @Getter private double xyStandardDeviation = Double.POSITIVE_INFINITY;
+  @Getter private double thetaStandardDeviation = Double.POSITIVE_INFINITY;
+  @Getter private double lastAcceptedTimestamp = Double.NEGATIVE_INFINITY;
+
+  public VisionGate(String cameraName) {
+    for (RejectReason reason : RejectReason.values()) {
+      rejectionKeys[reason.ordinal()] = "Vision/Gating/" + cameraName + "/" + reason.name();
+    }
+  }
+
+  /**
+   * Runs a measurement through every check in order. When the measurement is accepted, the
+   * standard deviations to use for it are available from the getters until the next call.
+   *
+   * @param pose Robot pose solved by the camera
+   * @param timestamp Capture timestamp of the frame in seconds
+   * @param tagCount Number of tags used in the solution
+   * @param averageDistance Average distance from the camera to the tags in meters
+   * @param ambiguity Highest pose ambiguity of the tags in the frame
+   * @param xyStandardDeviationCoefficient Camera and solver specific trust coefficient
+   * @param horizontalFOV Horizontal field of view of the camera in radians
+   * @param yawVelocity Current robot yaw velocity in radians per second
+   * @param estimatedPose Current pose estimate, used for jump rejection
+   * @param currentTimestamp Current time in seconds
+   * @return ACCEPTED or the reason the measurement was rejected
+   */
+  public RejectReason evaluate(
+      Pose3d pose,
+      double timestamp,
+      int tagCount,
+      double averageDistance,
+      double ambiguity,
+      double xyStandardDeviationCoefficient,
+      double horizontalFOV,
+      double yawVelocity,
+      Pose2d estimatedPose,
+      double currentTimestamp) {
+    RejectReason reason =
+        check(
+            pose,
+            timestamp,
+            tagCount,
+            averageDistance,
+            ambiguity,
+            yawVelocity,
+            estimatedPose,
+            currentTimestamp);
+    rejectionCounts[reason.ordinal()]++;
+
+    if (reason != RejectReason.ACCEPTED) {
+      xyStandardDeviation = Double.POSITIVE_INFINITY;
+      thetaStandardDeviation = Double.POSITIVE_INFINITY;
+      return reason;
+    }
+
+    lastAcceptedTimestamp = timestamp;
+
+    // Trust falls off with the square of distance and improves with every extra tag in view
+    double distanceScale = averageDistance * averageDistance / tagCount;
+    xyStandardDeviation =
+        Math.max(
+            GatingConstants.MIN_XY_STANDARD_DEVIATION,
+            xyStandardDeviationCoefficient * distanceScale * horizontalFOV);
+    // Single tag headings are too noisy to use, the gyro is far better
+    thetaStandardDeviation =
+        tagCount > 1
+            ? GatingConstants.THETA_STANDARD_DEVIATION_COEFFICIENT * distanceScale
+            : Double.POSITIVE_INFINITY;
+    return reason;
+  }
+
+  private RejectReason check(
+      Pose3d pose,
+      double timestamp,
+      int tagCount,
+      double averageDistance,
+      double ambiguity,
+      double yawVelocity,
+      Pose2d estimatedPose,
+      double currentTimestamp) {
+    if (tagCount <= 0) {
+      return RejectReason.NO_TAGS;
+    }
+    if (currentTimestamp - timestamp > GatingConstants.MAX_FRAME_AGE.get()) {
+      return RejectReason.STALE;
+    }
+
+    double margin = GatingConstants.FIELD_BORDER_MARGIN.get();
+    if (pose.getX() < -margin
+        || pose.getX() > FieldConstants.fieldLength + margin
+        || pose.getY() < -margin
+        || pose.getY() > FieldConstants.fieldWidth + margin) {
+      return RejectReason.OUT_OF_FIELD;
+    }
+    if (Math.abs(pose.getZ()) > GatingConstants.MAX_Z_ERROR.get()) {
+      return RejectReason.HEIGHT;
+    }
+    double maxRollPitch = GatingConstants.MAX_ROLL_PITCH.get();
+    if (Math.abs(pose.getRotation().getX()) > maxRollPitch
+        || Math.abs(pose.getRotation().getY()) > maxRollPitch) {
+      return RejectReason.ROLL_PITCH;
+    }
+    if (tagCount == 1 && ambiguity > GatingConstants.MAX_AMBIGUITY.get()) {
+      return RejectReason.AMBIGUITY;
+    }
+    if (averageDistance > GatingConstants.MAX_AVERAGE_DISTANCE.get()) {
+      return RejectReason.DISTANCE;
+    }
+    if (Math.abs(yawVelocity) > GatingConstants.MAX_YAW_VELOCITY.get()) {
+      return RejectReason.YAW_VELOCITY;
+    }
+
+    // Allow large corrections while disabled, or once this camera has disagreed for long enough
+    // that the estimate itself is more likely to be wrong than the camera
+    double jump =
+        Math.hypot(pose.getX() - estimatedPose.getX(), pose.getY() - estimatedPose.getY());
+    if (!DriverStation.isDisabled()
+        && jump > GatingConstants.MAX_POSE_JUMP.get()
+        && consecutiveJumpRejections < GatingConstants.MAX_CONSECUTIVE_JUMP_REJECTIONS) {
+      consecutiveJumpRejections++;
+      return RejectReason.POSE_JUMP;
+    }
+    consecutiveJumpRejections = 0;
+
+    return RejectReason.ACCEPTED;
+  }
+
+  /** Logs the running count of measurements for each outcome. */
+  public void logRejectionCounts() {
+    for (int i = 0; i < rejectionCounts.length; i++) {
+      LoggedOutputs.record(rejectionKeys[i], rejectionCounts[i], Policy.ON_CHANGE);
+    }
+  }
+
+  /** The outcome of gating a single measurement. */
+  public static enum RejectReason {
+    ACCEPTED,
+    NO_TAGS,
+    STALE,
+    OUT_OF_FIELD,
+    HEIGHT,
+    ROLL_PITCH,
+    AMBIGUITY,
+    DISTANCE,
+    YAW_VELOCITY,
+    POSE_JUMP
+  }
+}
@@ -0,0 +1,61 @@
+package frc.robot.subsystems.vision;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer, single-consumer mailbox for passing solved frames from a camera's
+ * worker thread to the main loop. When the mailbox is full, new frames are dropped and counted.
+ */
+public class VisionMailbox {
+  private final VisionFrame[] buffer;
+  private final AtomicLong head = new AtomicLong(); // Next slot to read, owned by the main loop
+  private final AtomicLong tail = new AtomicLong(); // Next slot to write, owned by the worker
+  private final AtomicLong overflowCount = new AtomicLong();
+
+  public VisionMailbox(int capacity) {
+    buffer = new VisionFrame[capacity];
+  }
+
+  /**
+   * Publishes a frame. Must only be called from the worker thread.
+   *
+   * @return false if the mailbox was full and the frame was dropped
+   */
+  public boolean offer(VisionFrame frame) {
+    long currentTail = tail.get();
+    if (currentTail - head.get() >= buffer.length) {
+      overflowCount.incrementAndGet();
+      return false;
+    }
+    buffer[(int) (currentTail % buffer.length)] = frame;
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Takes the oldest frame. Must only be called from the main loop.
+   *
+   * @return the oldest frame, or null if the mailbox is empty
+   */
+  public VisionFrame poll() {
+    long currentHead = head.get();
+    if (currentHead >= tail.get()) {
+      return null;
+    }
+    int index = (int) (currentHead % buffer.length);
+    VisionFrame frame = buffer[index];
+    buffer[index] = null;
+    head.lazySet(currentHead + 1);
+    return frame;
+  }
+
+  /** Returns the number of frames waiting to be read. */
+  public int size() {
+    return (int) (tail.get() - head.get());
+  }
+
+  /** Returns the total number of frames dropped because the mailbox was full. */
+  public long getOverflowCount() {
+    return overflowCount.get();
+  }
+}
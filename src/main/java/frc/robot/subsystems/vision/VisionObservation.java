@@ -0,0 +1,61 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import lombok.Getter;
+
+/**
+ * A single pose measurement from one camera frame. {@link Vision} preallocates these and refills
+ * the same instances every loop, flagging the ones that hold data from the latest update as new.
+ * Along with the capture timestamp, each observation carries when the frame arrived on the RIO,
+ * when the main loop picked it up, and when the pose estimator consumed it.
+ */
+public class VisionObservation {
+  @Getter private final int cameraIndex;
+  @Getter private final boolean primary;
+
+  @Getter private boolean isNew = false;
+  @Getter private boolean latestFrame = false;
+  @Getter private Pose3d pose = new Pose3d();
+  @Getter private double timestamp = 0.0;
+  @Getter private double receiveTimestamp = 0.0;
+  @Getter private double drainTimestamp = 0.0;
+  @Getter private double ingestTimestamp = Double.NaN;
+  @Getter private int tagCount = 0;
+  @Getter private double averageDistance = 0.0;
+  @Getter private double ambiguity = 0.0;
+
+  public VisionObservation(int cameraIndex, boolean primary) {
+    this.cameraIndex = cameraIndex;
+    this.primary = primary;
+  }
+
+  void set(
+      Pose3d pose,
+      double timestamp,
+      double receiveTimestamp,
+      double drainTimestamp,
+      int tagCount,
+      double averageDistance,
+      double ambiguity,
+      boolean latestFrame) {
+    this.pose = pose;
+    this.timestamp = timestamp;
+    this.receiveTimestamp = receiveTimestamp;
+    this.drainTimestamp = drainTimestamp;
+    this.ingestTimestamp = Double.NaN;
+    this.tagCount = tagCount;
+    this.averageDistance = averageDistance;
+    this.ambiguity = ambiguity;
+    this.latestFrame = latestFrame;
+    isNew = true;
+  }
+
+  /** Records when the pose estimator consumed this observation. */
+  public void markIngested(double timestamp) {
+    ingestTimestamp = timestamp;
+  }
+
+  void clear() {
+    isNew = false;
+  }
+}
@@ -0,0 +1,15 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.subsystems.vision.CameraConstants.PipelineConstants;
+
+/** Pipelines every AprilTag camera is configured with, see {@link PipelineConstants}. */
+public enum VisionPipeline {
+  APRILTAG_LONG_RANGE(PipelineConstants.APRILTAG_LONG_RANGE_INDEX),
+  APRILTAG_HIGH_FPS(PipelineConstants.APRILTAG_HIGH_FPS_INDEX);
+
+  public final int index;
+
+  private VisionPipeline(int index) {
+    this.index = index;
+  }
+}
@@ -0,0 +1,32 @@
+package frc.robot.subsystems.vision;
+
+/**
+ * Consumes frames from a single camera off the main loop. Each pass asks the IO layer to decode
+ * and solve every frame received since the last pass and publish the results to the camera's
+ * mailbox.
+ */
+public class VisionWorker extends Thread {
+  private final CameraIO io;
+  private final VisionMailbox mailbox;
+
+  public VisionWorker(CameraIO io, VisionMailbox mailbox) {
+    this.io = io;
+    this.mailbox = mailbox;
+
+    setName("VisionWorker-" + io.toString());
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        Thread.sleep((long) (CameraConstants.WORKER_PERIOD_SECONDS * 1000.0));
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      io.processFrames(mailbox);
+    }
+  }
+}
@@ -10,23 +10,22 @@ package frc.robot.util;
 import edu.wpi.first.util.sendable.Sendable;
 import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
 import lombok.Getter;
+import org.littletonrobotics.junction.Logger;
 
 /** Class for managing persistent alerts to be sent over NetworkTables. */
 public class Alert {
   private static Map<String, SendableAlerts> groups = new HashMap<String, SendableAlerts>();
 
+  private final SendableAlerts group;
   private final AlertType type;
   @Getter private boolean active = false;
-  private double activeStartTime = 0.0;
   private String text;
 
   /**
@@ -54,9 +53,16 @@ public class Alert {
       SmartDashboard.putData(group, groups.get(group));
     }
 
+    this.group = groups.get(group);
     this.text = text;
     this.type = type;
-    groups.get(group).alerts.add(this);
+  }
+
+  /** Logs the active alerts of every group that changed since the last call. */
+  public static void periodic() {
+    for (Map.Entry<String, SendableAlerts> entry : groups.entrySet()) {
+      entry.getValue().log(entry.getKey());
+    }
   }
 
   /**
@@ -64,8 +70,10 @@ public class Alert {
    * be sent to the console.
    */
   public void set(boolean active) {
-    if (active && !this.active) {
-      activeStartTime = Timer.getFPGATimestamp();
+    if (active == this.active) {
+      return;
+    }
+    if (active) {
       switch (type) {
         case ERROR:
           DriverStation.reportError(text, false);
@@ -79,6 +87,7 @@ public class Alert {
       }
     }
     this.active = active;
+    group.update(this);
   }
 
   /** Updates current alert text. */
@@ -96,21 +105,66 @@ public class Alert {
           break;
       }
     }
-    this.text = text;
+    if (!text.equals(this.text)) {
+      this.text = text;
+      group.update(this);
+    }
   }
 
+  /**
+   * Active alerts of one group, newest first. Alerts are added and removed as they change state,
+   * and the dashboard's string arrays are only rebuilt after a change.
+   */
   private static class SendableAlerts implements Sendable {
-    public final List<Alert> alerts = new ArrayList<>();
-
-    public String[] getStrings(AlertType type) {
-      Predicate<Alert> activeFilter = (Alert x) -> x.type == type && x.active;
-      Comparator<Alert> timeSorter =
-          (Alert a1, Alert a2) -> (int) (a2.activeStartTime - a1.activeStartTime);
-      return alerts.stream()
-          .filter(activeFilter)
-          .sorted(timeSorter)
-          .map((Alert a) -> a.text)
-          .toArray(String[]::new);
+    private final Map<AlertType, List<Alert>> active = new EnumMap<>(AlertType.class);
+    private final Map<AlertType, String[]> strings = new EnumMap<>(AlertType.class);
+    private boolean logged = false;
+
+    private SendableAlerts() {
+      for (AlertType type : AlertType.values()) {
+        active.put(type, new ArrayList<>());
+        strings.put(type, new String[0]);
+      }
+    }
+
+    /** Moves an alert into or out of the active list, or refreshes its text. */
+    private synchronized void update(Alert alert) {
+      List<Alert> alerts = active.get(alert.type);
+      if (alert.active) {
+        // A newly activated alert is always the newest
+        if (!alerts.contains(alert)) {
+          alerts.add(0, alert);
+        }
+      } else if (!alerts.remove(alert)) {
+        return;
+      }
+      strings.put(alert.type, null);
+      logged = false;
+    }
+
+    public synchronized String[] getStrings(AlertType type) {
+      String[] cached = strings.get(type);
+      if (cached == null) {
+        List<Alert> alerts = active.get(type);
+        cached = new String[alerts.size()];
+        for (int i = 0; i < cached.length; i++) {
+          cached[i] = alerts.get(i).text;
+        }
+        strings.put(type, cached);
+      }
+      return cached;
+    }
+
+    private void log(String name) {
+      synchronized (this) {
+        if (logged) {
+          return;
+        }
+        logged = true;
+      }
+      Logger.recordOutput(name + "/Errors", getStrings(AlertType.ERROR));
+      Logger.recordOutput(name + "/Warnings", getStrings(AlertType.WARNING));
+      Logger.recordOutput(name + "/Infos", getStrings(AlertType.INFO));
     }
 
     @Override
@@ -0,0 +1,541 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.MatchType;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.util.Alert.AlertType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.LogTable.LoggableType;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Writes the log as WPILOG with a bounded delay and without ever blocking AdvantageKit's receiver
+ * thread. Changed values are encoded into one of two preallocated direct buffers, and a separate
+ * thread writes the other one to the file in a single batch. Buffers are swapped at most every
+ * {@link #FLUSH_PERIOD_SECONDS}, so data reaches the file within about that long of being logged.
+ *
+ * <p>If the file stalls, the filling buffer grows instead of the receiver queue. Past set fill
+ * levels it sheds values, decimated and debug outputs first, then all outputs, and inputs only once
+ * the buffer is full. A shed value is not marked as written, so it is written once there is room
+ * again.
+ *
+ * <p>With compression on, every batch is written as its own gzip member. The file is a standard
+ * gzip file that decompresses to a normal WPILOG.
+ *
+ * <p>Like the stock writer, the file starts with a random name, since the clock is not set until
+ * the Driver Station connects. It is renamed with the date once the clock is valid, and again with
+ * the match once there is one. A new file never replaces an existing one.
+ */
+public class BufferedWPILOGWriter implements LogDataReceiver {
+  private static final int BUFFER_BYTES = 4 * 1024 * 1024;
+  private static final double FLUSH_PERIOD_SECONDS = 0.1;
+  private static final double SHEDDABLE_OUTPUT_LIMIT = 0.5;
+  private static final double OUTPUT_LIMIT = 0.75;
+  private static final double METRICS_PERIOD_SECONDS = 0.1;
+  private static final String TIMESTAMP_KEY = "/Timestamp";
+  private static final String EXTRA_HEADER = "AdvantageKit";
+  private static final String ENTRY_METADATA = "{\"source\":\"AdvantageKit\"}";
+  private static final DateTimeFormatter FILE_NAME_FORMAT =
+      DateTimeFormatter.ofPattern("'akit_'yy-MM-dd_HH-mm-ss");
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final Path folder;
+  private final boolean compress;
+  private final String extension;
+  private LocalDateTime logDate = null;
+  private String requestedName = null;
+  private boolean matchNamed = false;
+  private final AtomicReference<String> pendingName = new AtomicReference<>();
+  private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(2);
+  private final BlockingQueue<ByteBuffer> fullBuffers = new ArrayBlockingQueue<>(2);
+  private final Map<String, Entry> entries = new HashMap<>();
+  private ByteBuffer filling;
+  private long lastFlushNanos = 0;
+  private int nextEntryId = 1;
+  private Thread writerThread;
+
+  // Only touched by the writer thread
+  private Path file;
+  private FileChannel channel;
+  private Deflater deflater;
+  private final CRC32 crc = new CRC32();
+  private ByteBuffer compressed;
+
+  private final AtomicLong queuedBytes = new AtomicLong();
+  private final AtomicLong writingBytes = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong maxWriteNanos = new AtomicLong();
+  private final AtomicLong shedSheddableOutputs = new AtomicLong();
+  private final AtomicLong shedOutputs = new AtomicLong();
+  private final AtomicLong shedInputs = new AtomicLong();
+  private final AtomicBoolean failed = new AtomicBoolean(false);
+  private final Alert shedInputsAlert =
+      new Alert("Log writer is dropping inputs, check the USB drive.", AlertType.ERROR);
+  private final Alert failedAlert =
+      new Alert("Log writer failed, check the console.", AlertType.ERROR);
+  private long lastBytesWritten = 0;
+
+  /**
+   * @param folder Folder for the log file, created if needed
+   * @param compress Whether to gzip each batch
+   */
+  public BufferedWPILOGWriter(String folder, boolean compress) {
+    this.folder = Path.of(folder);
+    this.compress = compress;
+    extension = compress ? ".wpilog.gz" : ".wpilog";
+    MultiRateScheduler.getInstance().addPeriodic(this::logMetrics, METRICS_PERIOD_SECONDS);
+  }
+
+  @Override
+  public void start() {
+    filling = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+    try {
+      Files.createDirectories(folder);
+      String randomName = String.format("akit_TBD_%08x", new Random().nextInt());
+      file = folder.resolve(randomName + extension);
+      channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      fail("Failed to open log file: " + e.getMessage());
+    }
+    if (compress) {
+      deflater = new Deflater(Deflater.BEST_SPEED, true);
+      compressed = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Header, then the timestamp entry every cycle writes to
+    byte[] extraHeader = EXTRA_HEADER.getBytes(StandardCharsets.UTF_8);
+    filling.put("WPILOG".getBytes(StandardCharsets.UTF_8));
+    filling.putShort((short) 0x0100);
+    filling.putInt(extraHeader.length);
+    filling.put(extraHeader);
+    entries.put(TIMESTAMP_KEY, startEntry(TIMESTAMP_KEY, "int64", 0, Tier.INPUT));
+    lastFlushNanos = System.nanoTime();
+
+    writerThread = new Thread(this::runWriter, "LogWriter");
+    writerThread.setDaemon(true);
+    writerThread.setPriority(Thread.MIN_PRIORITY);
+    writerThread.start();
+  }
+
+  @Override
+  public void end() {
+    try {
+      flush(freeBuffers.take());
+      fullBuffers.put(ByteBuffer.allocate(0)); // Stops the writer
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      fail("Failed to close log file: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void putTable(LogTable table) {
+    long timestamp = table.getTimestamp();
+    Entry timestampEntry = entries.get(TIMESTAMP_KEY);
+    if (hasRoom(Tier.INPUT, 17)) {
+      putRecordHeader(timestampEntry.id, 8, timestamp);
+      filling.putLong(timestamp);
+    } else {
+      shedInputs.incrementAndGet();
+    }
+
+    for (Map.Entry<String, LogValue> field : table.getAll(false).entrySet()) {
+      String key = field.getKey();
+      LogValue value = field.getValue();
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        Tier tier = getTier(key);
+        entry = startEntry(key, value.getWPILOGType(), timestamp, tier);
+        if (entry == null) {
+          countShed(tier);
+          continue;
+        }
+        entries.put(key, entry);
+      }
+      // The stock writer also ignores values whose type changed
+      if (entry.type != null && entry.type != value.type) {
+        continue;
+      }
+      entry.type = value.type;
+      if (value.equals(entry.written)) {
+        continue;
+      }
+      if (putValue(entry, value, timestamp)) {
+        entry.written = value;
+      } else {
+        countShed(entry.tier);
+      }
+    }
+
+    updateName();
+
+    long now = System.nanoTime();
+    if (now - lastFlushNanos >= (long) (FLUSH_PERIOD_SECONDS * 1e9)) {
+      // Keep filling the same buffer while the writer is busy with the other one
+      ByteBuffer next = freeBuffers.poll();
+      if (next != null) {
+        flush(next);
+        lastFlushNanos = now;
+      }
+    }
+    queuedBytes.set(filling.position() + writingBytes.get());
+  }
+
+  /** Asks the writer thread to rename the file once the date, and then the match, are known. */
+  private void updateName() {
+    if (matchNamed) {
+      return;
+    }
+    if (logDate == null) {
+      if (!DriverStation.isDSAttached() || !RobotController.isSystemTimeValid()) {
+        return;
+      }
+      logDate = LocalDateTime.now();
+    }
+    String name = logDate.format(FILE_NAME_FORMAT);
+    MatchType matchType = DriverStation.getMatchType();
+    if (matchType != MatchType.None) {
+      name +=
+          "_"
+              + DriverStation.getEventName()
+              + "_"
+              + matchType.name().substring(0, 1).toLowerCase()
+              + DriverStation.getMatchNumber();
+      matchNamed = true;
+    }
+    if (!name.equals(requestedName)) {
+      requestedName = name;
+      pendingName.set(name);
+    }
+  }
+
+  /** Bytes encoded but not yet written to the file. */
+  public long getQueuedBytes() {
+    return queuedBytes.get();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  /** Logs the writer's health. Runs from the main loop at {@link #METRICS_PERIOD_SECONDS}. */
+  private void logMetrics() {
+    long written = bytesWritten.get();
+    Logger.recordOutput("LogWriter/Queued KB", queuedBytes.get() / 1024.0);
+    Logger.recordOutput(
+        "LogWriter/KB Per Second", (written - lastBytesWritten) / 1024.0 / METRICS_PERIOD_SECONDS);
+    Logger.recordOutput("LogWriter/Max Write Latency Ms", maxWriteNanos.getAndSet(0) / 1e6);
+    Logger.recordOutput("LogWriter/Shed/Decimated Outputs", shedSheddableOutputs.get());
+    Logger.recordOutput("LogWriter/Shed/Outputs", shedOutputs.get());
+    Logger.recordOutput("LogWriter/Shed/Inputs", shedInputs.get());
+    lastBytesWritten = written;
+    shedInputsAlert.set(shedInputs.get() > 0);
+    failedAlert.set(failed.get());
+  }
+
+  /** Hands the filling buffer to the writer and continues in the given empty one. */
+  private void flush(ByteBuffer next) {
+    filling.flip();
+    writingBytes.set(filling.remaining());
+    fullBuffers.add(filling);
+    filling = next;
+  }
+
+  private void runWriter() {
+    while (true) {
+      ByteBuffer buffer;
+      try {
+        buffer = fullBuffers.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (buffer.capacity() == 0) {
+        return;
+      }
+
+      long start = System.nanoTime();
+      int size = buffer.remaining();
+      if (channel != null && !failed.get()) {
+        try {
+          if (compress) {
+            writeCompressed(buffer);
+          } else {
+            writeFully(buffer);
+          }
+          bytesWritten.addAndGet(size);
+        } catch (IOException e) {
+          fail("Failed to write log file: " + e.getMessage());
+        }
+      }
+      maxWriteNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+      String name = pendingName.getAndSet(null);
+      if (name != null) {
+        rename(name);
+      }
+
+      buffer.clear();
+      writingBytes.set(0);
+      freeBuffers.add(buffer);
+    }
+  }
+
+  /** Writes the buffer as one gzip member. */
+  private void writeCompressed(ByteBuffer buffer) throws IOException {
+    int size = buffer.remaining();
+    crc.reset();
+    crc.update(buffer.duplicate());
+    compressed.clear();
+    compressed.put(GZIP_HEADER);
+    deflater.reset();
+    deflater.setInput(buffer);
+    deflater.finish();
+    while (!deflater.finished()) {
+      deflater.deflate(compressed);
+      if (!compressed.hasRemaining()) {
+        compressed.flip();
+        writeFully(compressed);
+        compressed.clear();
+      }
+    }
+    if (compressed.remaining() < 8) {
+      compressed.flip();
+      writeFully(compressed);
+      compressed.clear();
+    }
+    compressed.putInt((int) crc.getValue());
+    compressed.putInt(size);
+    compressed.flip();
+    writeFully(compressed);
+  }
+
+  /** Renames the open file, keeping the old name if the new one is taken. */
+  private void rename(String name) {
+    if (file == null) {
+      return;
+    }
+    Path renamed = folder.resolve(name + extension);
+    try {
+      // Moves without replacing, and the open channel keeps writing to the same file
+      Files.move(file, renamed);
+      file = renamed;
+    } catch (FileAlreadyExistsException e) {
+      DriverStation.reportWarning("Log file " + renamed + " already exists, not renaming", false);
+    } catch (IOException e) {
+      DriverStation.reportWarning("Failed to rename log file: " + e.getMessage(), false);
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private void fail(String message) {
+    DriverStation.reportError(message, false);
+    failed.set(true);
+  }
+
+  private static Tier getTier(String key) {
+    String outputKey = null;
+    if (key.startsWith("/RealOutputs/")) {
+      outputKey = key.substring("/RealOutputs/".length());
+    } else if (key.startsWith("/ReplayOutputs/")) {
+      outputKey = key.substring("/ReplayOutputs/".length());
+    }
+    if (outputKey == null) {
+      return Tier.INPUT;
+    }
+    return LoggedOutputs.isSheddable(outputKey) ? Tier.SHEDDABLE_OUTPUT : Tier.OUTPUT;
+  }
+
+  private void countShed(Tier tier) {
+    switch (tier) {
+      case SHEDDABLE_OUTPUT -> shedSheddableOutputs.incrementAndGet();
+      case OUTPUT -> shedOutputs.incrementAndGet();
+      case INPUT -> shedInputs.incrementAndGet();
+    }
+  }
+
+  /** Returns whether a record of the given size fits under the tier's fill limit. */
+  private boolean hasRoom(Tier tier, int bytes) {
+    int limit =
+        switch (tier) {
+          case SHEDDABLE_OUTPUT -> (int) (filling.capacity() * SHEDDABLE_OUTPUT_LIMIT);
+          case OUTPUT -> (int) (filling.capacity() * OUTPUT_LIMIT);
+          case INPUT -> filling.capacity();
+        };
+    return filling.position() + bytes <= limit;
+  }
+
+  /** Writes a start control record, or returns null if there is no room for it. */
+  private Entry startEntry(String key, String type, long timestamp, Tier tier) {
+    byte[] name = key.getBytes(StandardCharsets.UTF_8);
+    byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+    byte[] metadata = ENTRY_METADATA.getBytes(StandardCharsets.UTF_8);
+    int payloadSize = 17 + name.length + typeBytes.length + metadata.length;
+    if (!hasRoom(tier, 17 + payloadSize)) {
+      return null;
+    }
+    int id = nextEntryId++;
+    putRecordHeader(0, payloadSize, timestamp);
+    filling.put((byte) 0); // Start
+    filling.putInt(id);
+    filling.putInt(name.length);
+    filling.put(name);
+    filling.putInt(typeBytes.length);
+    filling.put(typeBytes);
+    filling.putInt(metadata.length);
+    filling.put(metadata);
+    return new Entry(id, tier);
+  }
+
+  /** Writes a data record, or returns false if there is no room for it. */
+  private boolean putValue(Entry entry, LogValue value, long timestamp) {
+    byte[] bytes = null;
+    byte[][] strings = null;
+    int payloadSize;
+    switch (value.type) {
+      case Raw -> payloadSize = value.getRaw().length;
+      case Boolean -> payloadSize = 1;
+      case Integer, Double -> payloadSize = 8;
+      case Float -> payloadSize = 4;
+      case String -> {
+        bytes = value.getString().getBytes(StandardCharsets.UTF_8);
+        payloadSize = bytes.length;
+      }
+      case BooleanArray -> payloadSize = value.getBooleanArray().length;
+      case IntegerArray -> payloadSize = 8 * value.getIntegerArray().length;
+      case FloatArray -> payloadSize = 4 * value.getFloatArray().length;
+      case DoubleArray -> payloadSize = 8 * value.getDoubleArray().length;
+      case StringArray -> {
+        String[] array = value.getStringArray();
+        strings = new byte[array.length][];
+        payloadSize = 4;
+        for (int i = 0; i < array.length; i++) {
+          strings[i] = array[i].getBytes(StandardCharsets.UTF_8);
+          payloadSize += 4 + strings[i].length;
+        }
+      }
+      default -> {
+        return true;
+      }
+    }
+    if (!hasRoom(entry.tier, 17 + payloadSize)) {
+      return false;
+    }
+
+    putRecordHeader(entry.id, payloadSize, timestamp);
+    switch (value.type) {
+      case Raw -> filling.put(value.getRaw());
+      case Boolean -> filling.put((byte) (value.getBoolean() ? 1 : 0));
+      case Integer -> filling.putLong(value.getInteger());
+      case Float -> filling.putFloat(value.getFloat());
+      case Double -> filling.putDouble(value.getDouble());
+      case String -> filling.put(bytes);
+      case BooleanArray -> {
+        for (boolean element : value.getBooleanArray()) {
+          filling.put((byte) (element ? 1 : 0));
+        }
+      }
+      case IntegerArray -> {
+        for (long element : value.getIntegerArray()) {
+          filling.putLong(element);
+        }
+      }
+      case FloatArray -> {
+        for (float element : value.getFloatArray()) {
+          filling.putFloat(element);
+        }
+      }
+      case DoubleArray -> {
+        for (double element : value.getDoubleArray()) {
+          filling.putDouble(element);
+        }
+      }
+      case StringArray -> {
+        filling.putInt(strings.length);
+        for (byte[] element : strings) {
+          filling.putInt(element.length);
+          filling.put(element);
+        }
+      }
+      default -> {}
+    }
+    return true;
+  }
+
+  /** Writes a record header with each field in as few bytes as it needs, 17 bytes at most. */
+  private void putRecordHeader(int entryId, int payloadSize, long timestamp) {
+    int idLength = getLength(entryId & 0xffffffffL);
+    int sizeLength = getLength(payloadSize & 0xffffffffL);
+    int timestampLength = getLength(timestamp);
+    filling.put((byte) ((idLength - 1) | (sizeLength - 1) << 2 | (timestampLength - 1) << 4));
+    putVariable(entryId, idLength);
+    putVariable(payloadSize, sizeLength);
+    putVariable(timestamp, timestampLength);
+  }
+
+  private void putVariable(long value, int length) {
+    for (int i = 0; i < length; i++) {
+      filling.put((byte) (value >>> (8 * i)));
+    }
+  }
+
+  private static int getLength(long value) {
+    int length = 1;
+    while (length < 8 && (value >>> (8 * length)) != 0) {
+      length++;
+    }
+    return length;
+  }
+
+  private static enum Tier {
+    SHEDDABLE_OUTPUT,
+    OUTPUT,
+    INPUT
+  }
+
+  private static class Entry {
+    private final int id;
+    private final Tier tier;
+    private LoggableType type = null;
+    private LogValue written = null;
+
+    private Entry(int id, Tier tier) {
+      this.id = id;
+      this.tier = tier;
+    }
+  }
+}
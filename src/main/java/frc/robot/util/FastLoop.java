@@ -0,0 +1,22 @@
+package frc.robot.util;
+
+import org.littletonrobotics.junction.AutoLog;
+
+/** Code that runs faster than the main loop on its own notifier, see {@link MultiRateScheduler}. */
+public interface FastLoop {
+  @AutoLog
+  public static class FastLoopInputs {
+    // Start of every tick since the last main loop
+    public double[] tickTimestamps = new double[] {};
+    public double maxTickSeconds = 0.0;
+    public long overruns = 0;
+  }
+
+  /**
+   * Runs one tick. Called from the notifier thread with the loop's lock held, so it must not log.
+   * Anything it shares with the main loop should only be touched under that lock.
+   *
+   * @param timestamp FPGA time at the start of the tick in seconds
+   */
+  public void run(double timestamp);
+}
@@ -0,0 +1,111 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import frc.robot.util.Alert.AlertType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.LoggedDashboardBoolean;
+
+/**
+ * Starts and stops a Java Flight Recorder session from the dashboard, so the robot can be profiled
+ * without redeploying with JVM flags. Recordings use the low overhead "default" profile, are capped
+ * in size, and are written next to the WPILOG files when stopped. Each file name is logged as
+ * "FlightRecorder/File" when the recording starts, so it can be matched with the log. Metadata is
+ * fixed once the logger starts, so it can't hold names chosen later. Starting and stopping run on a
+ * separate thread since both touch the disk.
+ */
+public class FlightRecorder {
+  private static final String CONFIGURATION = "default";
+  private static final long MAX_SIZE_BYTES = 64L * 1024L * 1024L;
+  private static final double PERIOD_SECONDS = 0.1;
+  private static final DateTimeFormatter FILE_NAME_FORMAT =
+      DateTimeFormatter.ofPattern("'jfr_'yyyyMMdd_HHmmss'.jfr'");
+
+  private final LoggedDashboardBoolean requested =
+      new LoggedDashboardBoolean("Flight Recorder", false);
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "FlightRecorder");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean failed = new AtomicBoolean(false);
+  private final Alert failedAlert =
+      new Alert("Flight recorder failed, check the console.", AlertType.WARNING);
+  private final String logDirectory = RobotBase.isReal() ? "/U/logs" : "logs";
+
+  private boolean active = false;
+  private Recording recording = null; // Only touched by the executor
+
+  public FlightRecorder() {
+    MultiRateScheduler.getInstance().addPeriodic(this::periodic, PERIOD_SECONDS);
+  }
+
+  private void periodic() {
+    failedAlert.set(failed.get());
+    if (requested.get() == active) {
+      return;
+    }
+    active = requested.get();
+    Logger.recordOutput("FlightRecorder/Active", active);
+    // Replay only needs the logged request, there is nothing to profile
+    if (Constants.getMode() == Mode.REPLAY) {
+      return;
+    }
+
+    if (active) {
+      String fileName = LocalDateTime.now().format(FILE_NAME_FORMAT);
+      Logger.recordOutput("FlightRecorder/File", fileName);
+      Path destination = Path.of(logDirectory, fileName);
+      executor.execute(() -> start(destination));
+    } else {
+      executor.execute(this::stop);
+    }
+  }
+
+  private void start(Path destination) {
+    try {
+      recording = new Recording(Configuration.getConfiguration(CONFIGURATION));
+      recording.setName("Robot");
+      recording.setToDisk(true);
+      recording.setMaxSize(MAX_SIZE_BYTES);
+      recording.setDumpOnExit(true);
+      // Nothing may have created the folder yet, in sim the logger only publishes to NT
+      Files.createDirectories(destination.getParent());
+      recording.setDestination(destination);
+      recording.start();
+    } catch (Exception e) {
+      DriverStation.reportError("Failed to start flight recording: " + e.getMessage(), false);
+      failed.set(true);
+      recording = null;
+    }
+  }
+
+  private void stop() {
+    if (recording == null) {
+      return;
+    }
+    try {
+      // Writes the recording to its destination
+      recording.stop();
+    } catch (Exception e) {
+      DriverStation.reportError("Failed to stop flight recording: " + e.getMessage(), false);
+      failed.set(true);
+    } finally {
+      recording.close();
+      recording = null;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package frc.robot.util;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import frc.robot.Constants;
+import frc.robot.util.Alert.AlertType;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Samples JVM allocation and garbage collection from the management beans and logs them under
+ * "JVM/" twice a second. Allocation is tracked per registered thread, and an alert is raised while
+ * the main loop allocates more than its budget per loop. GC pauses are reported as collection
+ * counts and times per collector since the last sample, plus the longest single pause.
+ */
+public class JvmTelemetry {
+  private static final double PERIOD_SECONDS = 0.5;
+  private static final double MAIN_LOOP_ALLOCATION_BUDGET_BYTES = 512.0 * 1024.0;
+
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+  private final List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+  private final long[] lastCollectionCounts = new long[collectors.size()];
+  private final long[] lastCollectionTimes = new long[collectors.size()];
+  private final AtomicLong maxPauseMillis = new AtomicLong();
+
+  private final List<TrackedThread> threads = new ArrayList<>();
+  private TrackedThread mainThread = null;
+  private long lastSampleNanos = System.nanoTime();
+
+  private final Alert allocationAlert =
+      new Alert("Main loop allocation is over budget, expect GC pauses.", AlertType.WARNING);
+
+  private static JvmTelemetry instance = null;
+
+  public static JvmTelemetry getInstance() {
+    if (instance == null) {
+      instance = new JvmTelemetry();
+    }
+    return instance;
+  }
+
+  private JvmTelemetry() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean sunBean
+        && sunBean.isThreadAllocatedMemorySupported()) {
+      sunBean.setThreadAllocatedMemoryEnabled(true);
+      threadBean = sunBean;
+    } else {
+      threadBean = null;
+    }
+
+    for (int i = 0; i < collectors.size(); i++) {
+      lastCollectionCounts[i] = collectors.get(i).getCollectionCount();
+      lastCollectionTimes[i] = collectors.get(i).getCollectionTime();
+      // Notifications arrive on a JMX thread after every collection with its duration
+      if (collectors.get(i) instanceof NotificationEmitter emitter) {
+        emitter.addNotificationListener(
+            (notification, handback) -> {
+              if (notification
+                  .getType()
+                  .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                long duration =
+                    GarbageCollectionNotificationInfo.from(
+                            (CompositeData) notification.getUserData())
+                        .getGcInfo()
+                        .getDuration();
+                maxPauseMillis.accumulateAndGet(duration, Math::max);
+              }
+            },
+            null,
+            null);
+      }
+    }
+
+    MultiRateScheduler.getInstance().addPeriodic(this::sample, PERIOD_SECONDS);
+  }
+
+  /** Tracks the bytes allocated by a thread. */
+  public void trackThread(String name, Thread thread) {
+    if (threadBean == null) {
+      return;
+    }
+    threads.add(
+        new TrackedThread(
+            thread,
+            "JVM/Allocation/" + name + " KB Per Second",
+            threadBean.getThreadAllocatedBytes(thread.getId())));
+  }
+
+  /** Tracks the calling thread as the main loop, which is also checked against the budget. */
+  public void trackMainThread() {
+    trackThread("Main", Thread.currentThread());
+    if (threadBean != null) {
+      mainThread = threads.get(threads.size() - 1);
+    }
+  }
+
+  private void sample() {
+    long now = System.nanoTime();
+    double elapsedSeconds = (now - lastSampleNanos) / 1e9;
+    lastSampleNanos = now;
+
+    boolean overBudget = false;
+    for (TrackedThread thread : threads) {
+      long allocatedBytes = threadBean.getThreadAllocatedBytes(thread.thread.getId());
+      if (allocatedBytes < 0) {
+        // Not started yet or already exited
+        continue;
+      }
+      double bytesPerSecond =
+          Math.max(0, allocatedBytes - Math.max(thread.lastAllocatedBytes, 0)) / elapsedSeconds;
+      thread.lastAllocatedBytes = allocatedBytes;
+      Logger.recordOutput(thread.key, bytesPerSecond / 1024.0);
+      if (thread == mainThread) {
+        double bytesPerLoop = bytesPerSecond * Constants.LOOP_PERIOD_SECONDS;
+        Logger.recordOutput("JVM/Allocation/Main KB Per Loop", bytesPerLoop / 1024.0);
+        overBudget = bytesPerLoop > MAIN_LOOP_ALLOCATION_BUDGET_BYTES;
+      }
+    }
+    allocationAlert.set(overBudget);
+
+    for (int i = 0; i < collectors.size(); i++) {
+      GarbageCollectorMXBean collector = collectors.get(i);
+      long count = collector.getCollectionCount();
+      long time = collector.getCollectionTime();
+      Logger.recordOutput(
+          "JVM/GC/" + collector.getName() + "/Collections", count - lastCollectionCounts[i]);
+      Logger.recordOutput(
+          "JVM/GC/" + collector.getName() + "/Time Ms", time - lastCollectionTimes[i]);
+      lastCollectionCounts[i] = count;
+      lastCollectionTimes[i] = time;
+    }
+    Logger.recordOutput("JVM/GC/Max Pause Ms", maxPauseMillis.getAndSet(0));
+    Logger.recordOutput(
+        "JVM/Heap Used MB", memoryBean.getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0));
+  }
+
+  private static class TrackedThread {
+    private final Thread thread;
+    private final String key;
+    private long lastAllocatedBytes;
+
+    private TrackedThread(Thread thread, String key, long lastAllocatedBytes) {
+      this.thread = thread;
+      this.key = key;
+      this.lastAllocatedBytes = lastAllocatedBytes;
+    }
+  }
+}
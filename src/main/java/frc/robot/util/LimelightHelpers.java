@@ -570,7 +570,7 @@ public class LimelightHelpers {
   public static RawDetection[] getRawDetections(String limelightName) {
     var entry = LimelightHelpers.getLimelightNTTableEntry(limelightName, "rawdetections");
     var rawDetectionArray = entry.getDoubleArray(new double[0]);
-    int valsPerEntry = 11;
+    int valsPerEntry = 12;
     if (rawDetectionArray.length % valsPerEntry != 0) {
       return new RawDetection[0];
     }
@@ -1108,7 +1108,10 @@ public class LimelightHelpers {
   /////
   /////
 
-  /** Asynchronously take snapshot. */
+  /**
+   * Asynchronously take snapshot. Blocks a common pool thread for the whole request with no
+   * timeout, prefer {@link LimelightHttpClient#takeSnapshot} on the robot.
+   */
   public static CompletableFuture<Boolean> takeSnapshot(String tableName, String snapshotName) {
     return CompletableFuture.supplyAsync(
         () -> {
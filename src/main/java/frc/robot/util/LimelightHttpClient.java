@@ -0,0 +1,178 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking client for the Limelight REST API. At most a fixed number of requests are in flight
+ * at once, the rest wait in a bounded queue, and every request has a timeout. Returned futures are
+ * only completed from {@link #poll()}, so callbacks attached to them run on the main loop.
+ */
+public class LimelightHttpClient {
+  public static final String DEFAULT_URL_FORMAT = "http://%s.local:5807/%s";
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 2;
+  public static final int DEFAULT_MAX_PENDING_REQUESTS = 16;
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(1);
+
+  private final String urlFormat;
+  private final Duration timeout;
+  private final int maxConcurrentRequests;
+  private final int maxPendingRequests;
+  private final ExecutorService executor;
+  private final HttpClient client;
+  private final Semaphore permits;
+
+  private final ConcurrentLinkedQueue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final ConcurrentLinkedQueue<Runnable> completions = new ConcurrentLinkedQueue<>();
+
+  public LimelightHttpClient() {
+    this(
+        DEFAULT_URL_FORMAT,
+        DEFAULT_MAX_CONCURRENT_REQUESTS,
+        DEFAULT_MAX_PENDING_REQUESTS,
+        DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * @param urlFormat Format for request URLs, taking the Limelight name and then the endpoint
+   * @param maxConcurrentRequests Requests allowed in flight at once
+   * @param maxPendingRequests Requests allowed to wait for a free slot before new ones are rejected
+   * @param timeout Connect and response timeout for each request
+   */
+  public LimelightHttpClient(
+      String urlFormat, int maxConcurrentRequests, int maxPendingRequests, Duration timeout) {
+    this.urlFormat = urlFormat;
+    this.timeout = timeout;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.maxPendingRequests = maxPendingRequests;
+    executor =
+        Executors.newFixedThreadPool(
+            maxConcurrentRequests,
+            runnable -> {
+              Thread thread = new Thread(runnable, "LimelightHttp");
+              thread.setDaemon(true);
+              return thread;
+            });
+    client = HttpClient.newBuilder().connectTimeout(timeout).executor(executor).build();
+    permits = new Semaphore(maxConcurrentRequests);
+  }
+
+  /** Requests the Limelight's status. */
+  public CompletableFuture<String> getStatus(String limelightName) {
+    return send(request(limelightName, "status").GET().build());
+  }
+
+  /** Captures a snapshot, optionally with a name. */
+  public CompletableFuture<String> takeSnapshot(String limelightName, String snapshotName) {
+    HttpRequest.Builder builder = request(limelightName, "capturesnapshot").GET();
+    if (snapshotName != null && !snapshotName.isEmpty()) {
+      builder.header("snapname", snapshotName);
+    }
+    return send(builder.build());
+  }
+
+  /** Uploads a pipeline, replacing the one at the given index. */
+  public CompletableFuture<String> uploadPipeline(
+      String limelightName, int pipelineIndex, String pipelineJson) {
+    return send(
+        request(limelightName, "upload-pipeline?index=" + pipelineIndex)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(pipelineJson))
+            .build());
+  }
+
+  /**
+   * Completes every future whose request has finished. Call once per loop from the main thread.
+   *
+   * @return Number of futures completed
+   */
+  public int poll() {
+    int completed = 0;
+    Runnable completion;
+    while ((completion = completions.poll()) != null) {
+      completion.run();
+      completed++;
+    }
+    return completed;
+  }
+
+  public int getInFlightCount() {
+    return maxConcurrentRequests - permits.availablePermits();
+  }
+
+  public int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /** Stops the request threads. Outstanding futures are never completed. */
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private HttpRequest.Builder request(String limelightName, String endpoint) {
+    return HttpRequest.newBuilder(URI.create(String.format(urlFormat, limelightName, endpoint)))
+        .timeout(timeout);
+  }
+
+  private CompletableFuture<String> send(HttpRequest request) {
+    CompletableFuture<String> result = new CompletableFuture<>();
+    if (pendingCount.incrementAndGet() > maxPendingRequests) {
+      pendingCount.decrementAndGet();
+      result.completeExceptionally(
+          new RejectedExecutionException("Too many pending Limelight requests"));
+      return result;
+    }
+    pending.add(new PendingRequest(request, result));
+    dispatch();
+    return result;
+  }
+
+  /** Starts pending requests while there are free slots. */
+  private void dispatch() {
+    while (!pending.isEmpty() && permits.tryAcquire()) {
+      PendingRequest next = pending.poll();
+      if (next == null) {
+        permits.release();
+        return;
+      }
+      pendingCount.decrementAndGet();
+      client
+          .sendAsync(next.request(), HttpResponse.BodyHandlers.ofString())
+          .whenComplete(
+              (response, error) -> {
+                permits.release();
+                completions.add(() -> complete(next.result(), response, error));
+                dispatch();
+              });
+    }
+  }
+
+  private static void complete(
+      CompletableFuture<String> result, HttpResponse<String> response, Throwable error) {
+    if (error instanceof CompletionException && error.getCause() != null) {
+      result.completeExceptionally(error.getCause());
+    } else if (error != null) {
+      result.completeExceptionally(error);
+    } else if (response.statusCode() / 100 != 2) {
+      result.completeExceptionally(
+          new IOException("Limelight request failed with status " + response.statusCode()));
+    } else {
+      result.complete(response.body());
+    }
+  }
+
+  private static record PendingRequest(HttpRequest request, CompletableFuture<String> result) {}
+}
@@ -0,0 +1,147 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import frc.robot.util.LimelightJsonResults.Detector;
+import frc.robot.util.LimelightJsonResults.Fiducial;
+import java.io.IOException;
+
+/**
+ * Streaming parser for Limelight JSON results dumps. Fields are read token by token straight into
+ * a reused {@link LimelightJsonResults}, and everything the robot does not use is skipped without
+ * building an object graph. Not thread safe, each thread should own its own parser.
+ */
+public class LimelightJsonParser {
+  private final JsonFactory factory = new JsonFactory();
+
+  /**
+   * Parses a results dump into an existing results object.
+   *
+   * @throws IOException if the dump is not valid JSON
+   */
+  public void parse(String json, LimelightJsonResults results) throws IOException {
+    long start = System.nanoTime();
+    results.reset();
+    try (JsonParser parser = factory.createParser(json)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Limelight results dump is not a JSON object");
+      }
+      parseResults(parser, results);
+    }
+    results.parseTimeMillis = (System.nanoTime() - start) / 1e6;
+  }
+
+  private static void parseResults(JsonParser parser, LimelightJsonResults results)
+      throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      switch (field) {
+        case "Results" -> {
+          // Older firmware wraps everything in a "Results" object
+          if (token == JsonToken.START_OBJECT) {
+            parseResults(parser, results);
+          } else {
+            parser.skipChildren();
+          }
+        }
+        case "pID" -> results.pipelineIndex = parser.getValueAsDouble();
+        case "tl" -> results.latencyPipeline = parser.getValueAsDouble();
+        case "cl" -> results.latencyCapture = parser.getValueAsDouble();
+        case "ts" -> results.timestampLimelightPublish = parser.getValueAsDouble();
+        case "ts_rio" -> results.timestampRioCapture = parser.getValueAsDouble();
+        case "v" -> results.valid = parser.getValueAsDouble() != 0.0;
+        case "botpose_wpiblue" -> readArray(parser, results.botposeWpiBlue);
+        case "botpose_tagcount" -> results.botposeTagCount = parser.getValueAsDouble();
+        case "botpose_span" -> results.botposeSpan = parser.getValueAsDouble();
+        case "botpose_avgdist" -> results.botposeAverageDistance = parser.getValueAsDouble();
+        case "botpose_avgarea" -> results.botposeAverageArea = parser.getValueAsDouble();
+        case "Fiducial" -> parseFiducials(parser, results);
+        case "Detector" -> parseDetectors(parser, results);
+        default -> parser.skipChildren();
+      }
+    }
+  }
+
+  private static void parseFiducials(JsonParser parser, LimelightJsonResults results)
+      throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      if (results.fiducialCount >= LimelightJsonResults.MAX_TARGETS) {
+        parser.skipChildren();
+        continue;
+      }
+      Fiducial fiducial = results.fiducials[results.fiducialCount++];
+      fiducial.id = 0;
+      fiducial.tx = 0.0;
+      fiducial.ty = 0.0;
+      fiducial.ta = 0.0;
+      fiducial.txPixels = 0.0;
+      fiducial.tyPixels = 0.0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "fID" -> fiducial.id = parser.getValueAsInt();
+          case "tx" -> fiducial.tx = parser.getValueAsDouble();
+          case "ty" -> fiducial.ty = parser.getValueAsDouble();
+          case "ta" -> fiducial.ta = parser.getValueAsDouble();
+          case "txp" -> fiducial.txPixels = parser.getValueAsDouble();
+          case "typ" -> fiducial.tyPixels = parser.getValueAsDouble();
+          default -> parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void parseDetectors(JsonParser parser, LimelightJsonResults results)
+      throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      if (results.detectorCount >= LimelightJsonResults.MAX_TARGETS) {
+        parser.skipChildren();
+        continue;
+      }
+      Detector detector = results.detectors[results.detectorCount++];
+      detector.classId = 0;
+      detector.confidence = 0.0;
+      detector.tx = 0.0;
+      detector.ty = 0.0;
+      detector.ta = 0.0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "classID" -> detector.classId = parser.getValueAsInt();
+          case "conf" -> detector.confidence = parser.getValueAsDouble();
+          case "tx" -> detector.tx = parser.getValueAsDouble();
+          case "ty" -> detector.ty = parser.getValueAsDouble();
+          case "ta" -> detector.ta = parser.getValueAsDouble();
+          default -> parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /** Reads a numeric array into a fixed size destination, ignoring extra elements. */
+  private static void readArray(JsonParser parser, double[] destination) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    int i = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (i < destination.length) {
+        destination[i] = parser.getValueAsDouble();
+      }
+      i++;
+    }
+  }
+}
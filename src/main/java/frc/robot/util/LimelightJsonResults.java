@@ -0,0 +1,76 @@
+package frc.robot.util;
+
+/**
+ * Mutable, reusable holder for the fields of a Limelight JSON results dump that the robot uses.
+ * Target arrays are preallocated, and only the first {@code fiducialCount} and {@code
+ * detectorCount} entries are valid.
+ */
+public class LimelightJsonResults {
+  public static final int MAX_TARGETS = 32;
+
+  // Set by LimelightJsonService, the parse number and the local time the dump arrived
+  public long sequence = 0;
+  public long receiveMicros = 0;
+  public double parseTimeMillis = 0.0;
+
+  public double pipelineIndex = 0.0;
+  public double latencyPipeline = 0.0;
+  public double latencyCapture = 0.0;
+  public double timestampLimelightPublish = 0.0;
+  public double timestampRioCapture = 0.0;
+  public boolean valid = false;
+
+  public final double[] botposeWpiBlue = new double[6];
+  public double botposeTagCount = 0.0;
+  public double botposeSpan = 0.0;
+  public double botposeAverageDistance = 0.0;
+  public double botposeAverageArea = 0.0;
+
+  public int fiducialCount = 0;
+  public final Fiducial[] fiducials = new Fiducial[MAX_TARGETS];
+  public int detectorCount = 0;
+  public final Detector[] detectors = new Detector[MAX_TARGETS];
+
+  public LimelightJsonResults() {
+    for (int i = 0; i < MAX_TARGETS; i++) {
+      fiducials[i] = new Fiducial();
+      detectors[i] = new Detector();
+    }
+  }
+
+  /** Clears every field, keeping the preallocated targets. */
+  public void reset() {
+    pipelineIndex = 0.0;
+    latencyPipeline = 0.0;
+    latencyCapture = 0.0;
+    timestampLimelightPublish = 0.0;
+    timestampRioCapture = 0.0;
+    valid = false;
+    for (int i = 0; i < botposeWpiBlue.length; i++) {
+      botposeWpiBlue[i] = 0.0;
+    }
+    botposeTagCount = 0.0;
+    botposeSpan = 0.0;
+    botposeAverageDistance = 0.0;
+    botposeAverageArea = 0.0;
+    fiducialCount = 0;
+    detectorCount = 0;
+  }
+
+  public static class Fiducial {
+    public int id = 0;
+    public double tx = 0.0;
+    public double ty = 0.0;
+    public double ta = 0.0;
+    public double txPixels = 0.0;
+    public double tyPixels = 0.0;
+  }
+
+  public static class Detector {
+    public int classId = 0;
+    public double confidence = 0.0;
+    public double tx = 0.0;
+    public double ty = 0.0;
+    public double ta = 0.0;
+  }
+}
@@ -0,0 +1,100 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.TimestampedString;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parses a Limelight's JSON results dump on a background thread. The dump is only parsed when its
+ * NetworkTables timestamp changes, and results are handed to the main loop through a triple buffer,
+ * so the caller always sees a complete result and nothing is allocated per parse.
+ */
+public class LimelightJsonService {
+  private static final long POLL_PERIOD_MILLIS = 5;
+
+  private final StringSubscriber jsonSubscriber;
+  private final LimelightJsonParser parser = new LimelightJsonParser();
+  private final Thread thread;
+
+  // The parser thread owns back, the caller owns front, and ready is swapped between them
+  private final AtomicReference<LimelightJsonResults> ready =
+      new AtomicReference<>(new LimelightJsonResults());
+  private LimelightJsonResults back = new LimelightJsonResults();
+  private LimelightJsonResults front = new LimelightJsonResults();
+  // Written after every swap, so ready is at least this new whenever front is older
+  private final AtomicLong readySequence = new AtomicLong();
+
+  private final AtomicLong parseCount = new AtomicLong();
+  private final AtomicLong parseErrors = new AtomicLong();
+  private long lastChange = 0;
+  private long sequence = 0;
+
+  public LimelightJsonService(String limelightName) {
+    this(
+        LimelightHelpers.getLimelightNTTable(limelightName)
+            .getStringTopic("json")
+            .subscribe("", PubSubOption.keepDuplicates(true)),
+        limelightName);
+  }
+
+  LimelightJsonService(StringSubscriber jsonSubscriber, String limelightName) {
+    this.jsonSubscriber = jsonSubscriber;
+    thread = new Thread(this::run, "LimelightJson-" + limelightName);
+    thread.setDaemon(true);
+  }
+
+  public void start() {
+    thread.start();
+  }
+
+  public void stop() {
+    thread.interrupt();
+  }
+
+  /**
+   * Returns the most recently parsed results, which stay unchanged until the next call. Must only
+   * be called from one thread. Results with a new {@link LimelightJsonResults#sequence} are new.
+   */
+  public LimelightJsonResults getLatest() {
+    if (readySequence.get() > front.sequence) {
+      front = ready.getAndSet(front);
+    }
+    return front;
+  }
+
+  public long getParseCount() {
+    return parseCount.get();
+  }
+
+  public long getParseErrors() {
+    return parseErrors.get();
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      TimestampedString dump = jsonSubscriber.getAtomic();
+      if (dump.timestamp != 0 && dump.timestamp != lastChange) {
+        lastChange = dump.timestamp;
+        try {
+          parser.parse(dump.value, back);
+          back.sequence = ++sequence;
+          back.receiveMicros = dump.timestamp;
+          back = ready.getAndSet(back);
+          readySequence.set(sequence);
+          parseCount.incrementAndGet();
+        } catch (IOException e) {
+          parseErrors.incrementAndGet();
+        }
+      }
+
+      try {
+        Thread.sleep(POLL_PERIOD_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package frc.robot.util;
+
+import edu.wpi.first.util.WPISerializable;
+import edu.wpi.first.util.struct.StructSerializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.LoggedDashboardBoolean;
+
+/**
+ * Records outputs through a {@link Policy} to cut the volume of high-rate logging. A key can be
+ * recorded every loop, only every few loops, only when its value changes, or only while debug
+ * logging is turned on from the dashboard. A skipped key keeps its last value in the log, so
+ * viewers still show the latest recorded state. Only use this for outputs, inputs must always be
+ * logged for replay.
+ */
+public final class LoggedOutputs {
+  private static final LoggedDashboardBoolean debugLogging =
+      new LoggedDashboardBoolean("Debug Logging", false);
+  private static final Map<String, LastValue> lastValues = new HashMap<>();
+  private static final Set<String> sheddableKeys = ConcurrentHashMap.newKeySet();
+  private static long loopCount = 0;
+  private static boolean debugEnabled = false;
+
+  private LoggedOutputs() {}
+
+  /**
+   * Advances the loop count and reads the debug switch. The switch is a logged dashboard input, so
+   * replay records the same keys. Call once at the start of robotPeriodic.
+   */
+  public static void periodic() {
+    loopCount++;
+    debugEnabled = debugLogging.get();
+  }
+
+  public static boolean isDebugEnabled() {
+    return debugEnabled;
+  }
+
+  /**
+   * Returns whether the key is due this loop under the policy, ignoring changes. Use it to skip
+   * building a value that will not be recorded.
+   */
+  public static boolean isDue(String key, Policy policy) {
+    if (policy.decimation() > 1 || policy.debug()) {
+      sheddableKeys.add(key);
+    }
+    if (policy.debug() && !debugEnabled) {
+      return false;
+    }
+    // Keys with the same rate are spread across loops by their hash
+    return policy.decimation() <= 1
+        || (loopCount + Math.floorMod(key.hashCode(), policy.decimation())) % policy.decimation()
+            == 0;
+  }
+
+  /**
+   * Returns whether the output key was recorded under a decimated or debug policy, so a log writer
+   * under pressure can drop it first. Safe to call from any thread.
+   */
+  public static boolean isSheddable(String key) {
+    return sheddableKeys.contains(key);
+  }
+
+  public static void record(String key, double value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  public static void record(String key, long value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  public static void record(String key, boolean value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value ? 1 : 0))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  public static <E extends Enum<E>> void record(String key, E value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  public static <T extends WPISerializable> void record(String key, T value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  /** The array must not be modified after it is recorded, the log holds on to it. */
+  public static <T extends StructSerializable> void record(String key, T[] value, Policy policy) {
+    if (isDue(key, policy) && (!policy.changesOnly() || getLastValue(key).changed(value))) {
+      Logger.recordOutput(key, value);
+    }
+  }
+
+  private static LastValue getLastValue(String key) {
+    LastValue lastValue = lastValues.get(key);
+    if (lastValue == null) {
+      lastValue = new LastValue();
+      lastValues.put(key, lastValue);
+    }
+    return lastValue;
+  }
+
+  /**
+   * How often a key is recorded.
+   *
+   * @param decimation Record once every this many loops
+   * @param changesOnly Skip values equal to the last recorded one
+   * @param debug Only record while debug logging is on
+   */
+  public static record Policy(int decimation, boolean changesOnly, boolean debug) {
+    public static final Policy EVERY_LOOP = new Policy(1, false, false);
+    public static final Policy ON_CHANGE = new Policy(1, true, false);
+    public static final Policy DEBUG = new Policy(1, false, true);
+
+    public static Policy decimated(int decimation) {
+      return new Policy(decimation, false, false);
+    }
+
+    public Policy onChange() {
+      return new Policy(decimation, true, debug);
+    }
+
+    public Policy debugOnly() {
+      return new Policy(decimation, changesOnly, true);
+    }
+  }
+
+  /** The last recorded value of a key, primitives are kept unboxed. */
+  private static class LastValue {
+    private boolean recorded = false;
+    private long bits = 0;
+    private Object object = null;
+
+    private boolean changed(double value) {
+      return changed(Double.doubleToLongBits(value));
+    }
+
+    private boolean changed(long value) {
+      if (recorded && bits == value) {
+        return false;
+      }
+      recorded = true;
+      bits = value;
+      return true;
+    }
+
+    private boolean changed(Object value) {
+      if (recorded && Objects.equals(object, value)) {
+        return false;
+      }
+      recorded = true;
+      object = value;
+      return true;
+    }
+
+    private boolean changed(Object[] value) {
+      if (recorded && object instanceof Object[] last && Arrays.equals(last, value)) {
+        return false;
+      }
+      recorded = true;
+      object = value.clone();
+      return true;
+    }
+  }
+}
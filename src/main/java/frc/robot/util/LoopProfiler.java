@@ -0,0 +1,161 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Times each phase of the main loop with nanosecond timers and logs rolling percentiles under
+ * "LoopTiming/". Code is timed either with an explicit {@link Phase}, or for commands through the
+ * scheduler's execute hooks. When {@link Constants#LOOP_PROFILING} is off every call returns
+ * immediately.
+ *
+ * <p>AdvantageKit's own work after user code, serializing and handing off the log, happens outside
+ * the loop it belongs to and is already reported under "LoggedRobot/".
+ */
+public final class LoopProfiler {
+  private static final int MAX_PHASES = 64;
+  private static final int WINDOW_SIZE = 250;
+  private static final double MAX_DURATION = 0.02;
+  private static final int BINS = 200;
+  private static final LoggedOutputs.Policy LOG_POLICY = LoggedOutputs.Policy.decimated(5);
+
+  private static final List<Phase> phases = new ArrayList<>();
+  private static final Map<String, Phase> phasesByName = new HashMap<>();
+  private static final Map<Command, Phase> phasesByCommand = new IdentityHashMap<>();
+  // Handed out once the cap is reached, it records nothing
+  private static final Phase noOpPhase = new Phase();
+  private static final Phase inputsPhase = getPhase("Inputs");
+  private static final Phase userCodePhase = getPhase("User Code");
+  private static long commandMark = 0;
+
+  private LoopProfiler() {}
+
+  /**
+   * Returns the phase with the given name, creating it if needed. Names may contain "/" to group
+   * phases in the log. Past {@link #MAX_PHASES} a shared phase that records nothing is returned.
+   */
+  public static Phase getPhase(String name) {
+    Phase phase = phasesByName.get(name);
+    if (phase == null) {
+      if (phases.size() >= MAX_PHASES) {
+        return noOpPhase;
+      }
+      phase = new Phase(name);
+      phases.add(phase);
+      phasesByName.put(name, phase);
+    }
+    return phase;
+  }
+
+  /**
+   * Starts timing each command's execute. The time is measured from the end of the previous
+   * command, or from the end of button polling for the first one, so it also includes the previous
+   * command's isFinished check. Call once after all button bindings are made.
+   */
+  public static void timeCommands() {
+    if (!Constants.LOOP_PROFILING) {
+      return;
+    }
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.getDefaultButtonLoop().bind(() -> commandMark = System.nanoTime());
+    scheduler.onCommandInitialize(command -> commandMark = System.nanoTime());
+    scheduler.onCommandExecute(LoopProfiler::recordCommand);
+    scheduler.onCommandFinish(command -> commandMark = System.nanoTime());
+    scheduler.onCommandInterrupt(command -> commandMark = System.nanoTime());
+  }
+
+  /**
+   * Records the time from the start of the cycle to now as input refresh, then starts timing user
+   * code. Call first in robotPeriodic.
+   */
+  public static void startLoop() {
+    if (!Constants.LOOP_PROFILING) {
+      return;
+    }
+    // Replayed cycle timestamps come from the log, so the gap only means something live
+    if (Constants.getMode() != Mode.REPLAY) {
+      inputsPhase.record((Logger.getRealTimestamp() - Logger.getTimestamp()) * 1000L);
+    }
+    userCodePhase.start();
+  }
+
+  /** Stops timing user code and logs every phase. Call last in robotPeriodic. */
+  public static void endLoop() {
+    if (!Constants.LOOP_PROFILING) {
+      return;
+    }
+    userCodePhase.stop();
+    for (Phase phase : phases) {
+      phase.log();
+    }
+  }
+
+  private static void recordCommand(Command command) {
+    long now = System.nanoTime();
+    Phase phase = phasesByCommand.get(command);
+    if (phase == null) {
+      phase = getPhase("Commands/" + command.getName());
+      phasesByCommand.put(command, phase);
+    }
+    phase.record(now - commandMark);
+    commandMark = now;
+  }
+
+  /** A named part of the loop with a rolling window of durations. */
+  public static class Phase {
+    private final RollingHistogram histogram; // Null for the no-op phase
+    private final String p50Key;
+    private final String p95Key;
+    private final String maxKey;
+    private long startNanos = 0;
+
+    private Phase(String name) {
+      histogram = new RollingHistogram(WINDOW_SIZE, MAX_DURATION, BINS);
+      p50Key = "LoopTiming/" + name + "/P50 Ms";
+      p95Key = "LoopTiming/" + name + "/P95 Ms";
+      maxKey = "LoopTiming/" + name + "/Max Ms";
+    }
+
+    private Phase() {
+      histogram = null;
+      p50Key = null;
+      p95Key = null;
+      maxKey = null;
+    }
+
+    public void start() {
+      if (Constants.LOOP_PROFILING) {
+        startNanos = System.nanoTime();
+      }
+    }
+
+    public void stop() {
+      if (Constants.LOOP_PROFILING) {
+        record(System.nanoTime() - startNanos);
+      }
+    }
+
+    private void record(long nanos) {
+      if (histogram != null) {
+        histogram.add(nanos / 1e9);
+      }
+    }
+
+    private void log() {
+      if (histogram.getCount() == 0 || !LoggedOutputs.isDue(maxKey, LOG_POLICY)) {
+        return;
+      }
+      Logger.recordOutput(p50Key, histogram.getPercentile(0.5) * 1e3);
+      Logger.recordOutput(p95Key, histogram.getPercentile(0.95) * 1e3);
+      Logger.recordOutput(maxKey, histogram.getMax() * 1e3);
+    }
+  }
+}
@@ -0,0 +1,371 @@
+package frc.robot.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.littletonrobotics.junction.LogReplaySource;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+
+/**
+ * Replay source that reads a WPILOG written by AdvantageKit straight out of a memory mapping. On
+ * the first open the whole file is checked once and the offset of every cycle is saved to an index
+ * next to the log, so later opens skip the check. Records are decoded with absolute reads from the
+ * mapping only when their cycle is replayed, without record objects or copies beyond the arrays
+ * and strings the log table needs. Drop-in replacement for AdvantageKit's WPILOGReader.
+ */
+public class MappedWPILOGReader implements LogReplaySource {
+  private static final String EXTRA_HEADER = "AdvantageKit";
+  private static final String TIMESTAMP_KEY = "/Timestamp";
+  private static final String INDEX_SUFFIX = ".index";
+  private static final long INDEX_MAGIC = 0x57504958_00000001L;
+
+  private final Path path;
+  private MappedByteBuffer buffer;
+  private boolean valid = false;
+
+  private int dataStart = 0;
+  private int[] cycleOffsets = new int[0];
+  private int cycleCount = 0;
+  private int nextCycle = 0;
+
+  // Entry info by ID, filled in as start records are replayed
+  private String[] entryKeys = new String[256];
+  private ValueType[] entryTypes = new ValueType[256];
+  private String[] entryCustomTypes = new String[256];
+  private int timestampEntry = -1;
+
+  public MappedWPILOGReader(String path) {
+    this.path = Path.of(path);
+  }
+
+  @Override
+  public void start() {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        System.err.println("Log is too large to map: " + path);
+        return;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    } catch (IOException e) {
+      System.err.println("Failed to open log: " + e.getMessage());
+      return;
+    }
+
+    if (buffer.limit() < 12
+        || !getString(0, 6).equals("WPILOG")
+        || (buffer.getShort(6) & 0xffff) < 0x0100) {
+      System.err.println("Not a WPILOG: " + path);
+      return;
+    }
+    int extraHeaderLength = buffer.getInt(8);
+    dataStart = 12 + extraHeaderLength;
+    if (extraHeaderLength < 0
+        || dataStart > buffer.limit()
+        || !getString(12, extraHeaderLength).equals(EXTRA_HEADER)) {
+      System.err.println("Not an AdvantageKit log: " + path);
+      return;
+    }
+
+    if (!readIndex()) {
+      buildIndex();
+      writeIndex();
+    }
+    valid = true;
+  }
+
+  /** Returns the number of cycles in the log. */
+  public int getCycleCount() {
+    return cycleCount;
+  }
+
+  @Override
+  public boolean updateTable(LogTable table) {
+    // Like the stock reader, the last cycle ends replay since it may have been cut off
+    if (!valid || nextCycle + 1 >= cycleCount) {
+      return false;
+    }
+    // Records before the first timestamp belong to the first cycle
+    int position = nextCycle == 0 ? dataStart : cycleOffsets[nextCycle];
+    int end = cycleOffsets[nextCycle + 1];
+    nextCycle++;
+
+    while (position < end) {
+      int header = buffer.get(position) & 0xff;
+      int idLength = (header & 0x3) + 1;
+      int sizeLength = ((header >> 2) & 0x3) + 1;
+      int timestampLength = ((header >> 4) & 0x7) + 1;
+      int entry = (int) getVariable(position + 1, idLength);
+      int size = (int) getVariable(position + 1 + idLength, sizeLength);
+      int payload = position + 1 + idLength + sizeLength + timestampLength;
+      position = payload + size;
+
+      if (entry == 0) {
+        readControl(payload, size);
+      } else if (entry == timestampEntry) {
+        table.setTimestamp(buffer.getLong(payload));
+      } else if (entry > 0 && entry < entryKeys.length && entryKeys[entry] != null) {
+        LogValue value = readValue(entryTypes[entry], entryCustomTypes[entry], payload, size);
+        if (value != null) {
+          table.put(entryKeys[entry], value);
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Registers an entry from a start record, other control records are ignored. */
+  private void readControl(int payload, int size) {
+    if (size < 17 || buffer.get(payload) != 0) {
+      return;
+    }
+    int entry = buffer.getInt(payload + 1);
+    int nameLength = buffer.getInt(payload + 5);
+    if (entry <= 0 || nameLength < 0 || 13 + nameLength > size) {
+      return;
+    }
+    int typeOffset = payload + 9 + nameLength;
+    int typeLength = buffer.getInt(typeOffset);
+    if (typeLength < 0 || 13 + nameLength + typeLength > size) {
+      return;
+    }
+    String name = getString(payload + 9, nameLength);
+    String type = getString(typeOffset + 4, typeLength);
+
+    if (name.equals(TIMESTAMP_KEY)) {
+      timestampEntry = entry;
+      return;
+    }
+    if (entry >= entryKeys.length) {
+      int length = Math.max(entry + 1, entryKeys.length * 2);
+      entryKeys = Arrays.copyOf(entryKeys, length);
+      entryTypes = Arrays.copyOf(entryTypes, length);
+      entryCustomTypes = Arrays.copyOf(entryCustomTypes, length);
+    }
+    // Keys are stored from the root table, the log table expects them without the leading slash
+    entryKeys[entry] = name.startsWith("/") ? name.substring(1) : name;
+    entryTypes[entry] = ValueType.fromWPILOGType(type);
+    entryCustomTypes[entry] = entryTypes[entry] == ValueType.RAW ? type : null;
+  }
+
+  private LogValue readValue(ValueType type, String customType, int payload, int size) {
+    switch (type) {
+      case RAW:
+        byte[] raw = new byte[size];
+        buffer.get(payload, raw);
+        return new LogValue(raw, customType);
+      case BOOLEAN:
+        return size < 1 ? null : new LogValue(buffer.get(payload) != 0, customType);
+      case INTEGER:
+        return size < 8 ? null : new LogValue(buffer.getLong(payload), customType);
+      case FLOAT:
+        return size < 4 ? null : new LogValue(buffer.getFloat(payload), customType);
+      case DOUBLE:
+        return size < 8 ? null : new LogValue(buffer.getDouble(payload), customType);
+      case STRING:
+        return new LogValue(getString(payload, size), customType);
+      case BOOLEAN_ARRAY:
+        boolean[] booleans = new boolean[size];
+        for (int i = 0; i < booleans.length; i++) {
+          booleans[i] = buffer.get(payload + i) != 0;
+        }
+        return new LogValue(booleans, customType);
+      case INTEGER_ARRAY:
+        long[] longs = new long[size / 8];
+        slice(payload, longs.length * 8).asLongBuffer().get(longs);
+        return new LogValue(longs, customType);
+      case FLOAT_ARRAY:
+        float[] floats = new float[size / 4];
+        slice(payload, floats.length * 4).asFloatBuffer().get(floats);
+        return new LogValue(floats, customType);
+      case DOUBLE_ARRAY:
+        double[] doubles = new double[size / 8];
+        slice(payload, doubles.length * 8).asDoubleBuffer().get(doubles);
+        return new LogValue(doubles, customType);
+      case STRING_ARRAY:
+        if (size < 4) {
+          return null;
+        }
+        int count = buffer.getInt(payload);
+        int position = payload + 4;
+        int end = payload + size;
+        if (count < 0 || count > size / 4) {
+          return null;
+        }
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+          if (position + 4 > end) {
+            return null;
+          }
+          int length = buffer.getInt(position);
+          if (length < 0 || position + 4 + length > end) {
+            return null;
+          }
+          strings[i] = getString(position + 4, length);
+          position += 4 + length;
+        }
+        return new LogValue(strings, customType);
+      default:
+        return null;
+    }
+  }
+
+  /** Checks every record header once and finds where each cycle starts. */
+  private void buildIndex() {
+    int[] offsets = new int[1024];
+    int count = 0;
+    int timestampId = -1;
+    int position = dataStart;
+    int limit = buffer.limit();
+    while (position < limit) {
+      int header = buffer.get(position) & 0xff;
+      int idLength = (header & 0x3) + 1;
+      int sizeLength = ((header >> 2) & 0x3) + 1;
+      int timestampLength = ((header >> 4) & 0x7) + 1;
+      int headerLength = 1 + idLength + sizeLength + timestampLength;
+      if (position + headerLength > limit) {
+        break;
+      }
+      long entry = getVariable(position + 1, idLength);
+      long size = getVariable(position + 1 + idLength, sizeLength);
+      int payload = position + headerLength;
+      if (payload + size > limit) {
+        break; // Truncated by a power loss
+      }
+
+      if (entry == 0 && size >= 9 && buffer.get(payload) == 0) {
+        int nameLength = buffer.getInt(payload + 5);
+        if (nameLength == TIMESTAMP_KEY.length()
+            && 9 + nameLength <= size
+            && getString(payload + 9, nameLength).equals(TIMESTAMP_KEY)) {
+          timestampId = buffer.getInt(payload + 1);
+        }
+      } else if (entry == timestampId && size == 8) {
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = position;
+      }
+      position = payload + (int) size;
+    }
+    cycleOffsets = Arrays.copyOf(offsets, count);
+    cycleCount = count;
+  }
+
+  /** Loads the index if it exists and matches the log. */
+  private boolean readIndex() {
+    Path indexPath = getIndexPath();
+    if (!Files.exists(indexPath)) {
+      return false;
+    }
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      if (input.readLong() != INDEX_MAGIC
+          || input.readLong() != buffer.limit()
+          || input.readLong() != Files.getLastModifiedTime(path).toMillis()) {
+        return false;
+      }
+      cycleCount = input.readInt();
+      cycleOffsets = new int[cycleCount];
+      for (int i = 0; i < cycleCount; i++) {
+        cycleOffsets[i] = input.readInt();
+      }
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void writeIndex() {
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getIndexPath())))) {
+      output.writeLong(INDEX_MAGIC);
+      output.writeLong(buffer.limit());
+      output.writeLong(Files.getLastModifiedTime(path).toMillis());
+      output.writeInt(cycleCount);
+      for (int i = 0; i < cycleCount; i++) {
+        output.writeInt(cycleOffsets[i]);
+      }
+    } catch (IOException e) {
+      // The index only saves time, replay works without it
+      System.err.println("Failed to save log index: " + e.getMessage());
+    }
+  }
+
+  private Path getIndexPath() {
+    return path.resolveSibling(path.getFileName() + INDEX_SUFFIX);
+  }
+
+  private long getVariable(int position, int length) {
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value |= (long) (buffer.get(position + i) & 0xff) << (8 * i);
+    }
+    return value;
+  }
+
+  /** Returns a view of part of the mapping, no bytes are copied. */
+  private ByteBuffer slice(int position, int length) {
+    return buffer.slice(position, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private String getString(int position, int length) {
+    byte[] bytes = new byte[length];
+    buffer.get(position, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static enum ValueType {
+    RAW,
+    BOOLEAN,
+    INTEGER,
+    FLOAT,
+    DOUBLE,
+    STRING,
+    BOOLEAN_ARRAY,
+    INTEGER_ARRAY,
+    FLOAT_ARRAY,
+    DOUBLE_ARRAY,
+    STRING_ARRAY;
+
+    private static ValueType fromWPILOGType(String type) {
+      switch (type) {
+        case "boolean":
+          return BOOLEAN;
+        case "int64":
+          return INTEGER;
+        case "float":
+          return FLOAT;
+        case "double":
+          return DOUBLE;
+        case "string":
+          return STRING;
+        case "boolean[]":
+          return BOOLEAN_ARRAY;
+        case "int64[]":
+          return INTEGER_ARRAY;
+        case "float[]":
+          return FLOAT_ARRAY;
+        case "double[]":
+          return DOUBLE_ARRAY;
+        case "string[]":
+          return STRING_ARRAY;
+        default:
+          // Structs, protobufs and schemas are raw values with a custom type
+          return RAW;
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.Constants;
+import frc.robot.Constants.Mode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Runs code at rates other than the main loop.
+ *
+ * <p>Slow tasks run on the main thread every Nth loop, with their phases spread so they don't all
+ * land on the same loop. Decimation counts main loops, so replay runs them on the same cycles.
+ *
+ * <p>Fast loops run on their own notifiers, phase locked to the main loop at a fixed offset. A fast
+ * loop should leave its measurements in buffers that the owning subsystem drains under the loop's
+ * lock and logs as inputs from the main thread, the same way odometry samples are handled. Fast
+ * loops are not started in replay, where those inputs come from the log instead.
+ */
+public class MultiRateScheduler {
+  private static final int MAX_TICKS_PER_LOOP = 32;
+
+  private final List<DecimatedTask> decimatedTasks = new ArrayList<>();
+  private final List<FastLoopRunner> fastLoops = new ArrayList<>();
+  private long loopCount = 0;
+  private boolean started = false;
+
+  private static MultiRateScheduler instance = null;
+
+  public static MultiRateScheduler getInstance() {
+    if (instance == null) {
+      instance = new MultiRateScheduler();
+    }
+    return instance;
+  }
+
+  private MultiRateScheduler() {}
+
+  /**
+   * Runs a task on the main thread at a slower rate than the main loop.
+   *
+   * @param periodSeconds Requested period, rounded to a whole number of main loops
+   */
+  public void addPeriodic(Runnable task, double periodSeconds) {
+    int divisor = Math.max(1, (int) Math.round(periodSeconds / Constants.LOOP_PERIOD_SECONDS));
+    int sameRate = 0;
+    for (DecimatedTask other : decimatedTasks) {
+      if (other.divisor() == divisor) {
+        sameRate++;
+      }
+    }
+    decimatedTasks.add(new DecimatedTask(task, divisor, sameRate % divisor));
+  }
+
+  /**
+   * Runs a loop on its own notifier.
+   *
+   * @param name Name of the loop, its timing is logged under "MultiRate/[name]"
+   * @param periodSeconds Period of the loop, should divide the main loop period evenly
+   * @param phaseOffsetSeconds Delay of each tick after the start of a main loop period
+   * @return Lock held while the loop runs
+   */
+  public Lock addFastLoop(
+      String name, FastLoop loop, double periodSeconds, double phaseOffsetSeconds) {
+    FastLoopRunner runner = new FastLoopRunner(name, loop, periodSeconds, phaseOffsetSeconds);
+    fastLoops.add(runner);
+    if (started) {
+      runner.start();
+    }
+    return runner.lock;
+  }
+
+  /**
+   * Logs the ticks of every fast loop since the last call, then runs the slow tasks due this loop.
+   * Call once at the start of every main loop.
+   */
+  public void periodic() {
+    if (!started) {
+      started = true;
+      for (FastLoopRunner runner : fastLoops) {
+        runner.start();
+      }
+    }
+
+    for (FastLoopRunner runner : fastLoops) {
+      runner.updateInputs();
+      Logger.processInputs("MultiRate/" + runner.name, runner.inputs);
+    }
+
+    for (DecimatedTask task : decimatedTasks) {
+      if (loopCount % task.divisor() == task.phase()) {
+        task.task().run();
+      }
+    }
+    loopCount++;
+  }
+
+  private static record DecimatedTask(Runnable task, int divisor, int phase) {}
+
+  private static class FastLoopRunner {
+    private final String name;
+    private final FastLoop loop;
+    private final double period;
+    private final double phaseOffset;
+    private final Lock lock = new ReentrantLock();
+    private final FastLoopInputsAutoLogged inputs = new FastLoopInputsAutoLogged();
+    private Notifier notifier;
+    private boolean periodicStarted = false;
+
+    // Only touched with the lock held
+    private final double[] tickTimestamps = new double[MAX_TICKS_PER_LOOP];
+    private int tickCount = 0;
+    private double maxTickSeconds = 0.0;
+    private long overruns = 0;
+
+    private FastLoopRunner(String name, FastLoop loop, double period, double phaseOffset) {
+      this.name = name;
+      this.loop = loop;
+      this.period = period;
+      this.phaseOffset = phaseOffset;
+    }
+
+    /**
+     * Schedules the first tick at the phase offset within the current main loop period, then runs
+     * periodically from there. Notifier alarms advance by exactly one period, so the phase holds.
+     */
+    private void start() {
+      if (Constants.getMode() == Mode.REPLAY) {
+        return;
+      }
+      notifier =
+          new Notifier(
+              () -> {
+                if (!periodicStarted) {
+                  periodicStarted = true;
+                  notifier.startPeriodic(period);
+                }
+                tick();
+              });
+      notifier.setName(name);
+      double sinceCycleStart = (Logger.getRealTimestamp() - Logger.getTimestamp()) / 1e6;
+      double delay = (phaseOffset - sinceCycleStart) % period;
+      notifier.startSingle(delay < 0.0 ? delay + period : delay);
+    }
+
+    private void tick() {
+      double start = Logger.getRealTimestamp() / 1e6;
+      lock.lock();
+      try {
+        loop.run(start);
+        double duration = Logger.getRealTimestamp() / 1e6 - start;
+        if (tickCount < tickTimestamps.length) {
+          tickTimestamps[tickCount++] = start;
+        }
+        maxTickSeconds = Math.max(maxTickSeconds, duration);
+        if (duration > period) {
+          overruns++;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void updateInputs() {
+      lock.lock();
+      try {
+        inputs.tickTimestamps = Arrays.copyOf(tickTimestamps, tickCount);
+        inputs.maxTickSeconds = maxTickSeconds;
+        inputs.overruns = overruns;
+        tickCount = 0;
+        maxTickSeconds = 0.0;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
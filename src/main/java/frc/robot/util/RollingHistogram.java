@@ -0,0 +1,85 @@
+package frc.robot.util;
+
+/**
+ * Fixed-bin histogram over the most recent samples. Once the window is full every new sample
+ * evicts the oldest one, and percentiles are read from the bin counts, so nothing is allocated
+ * after construction. Samples above the range land in the last bin.
+ */
+public class RollingHistogram {
+  private final double binWidth;
+  private final int[] binCounts;
+  private final double[] window;
+  private final int[] windowBins;
+  private int size = 0;
+  private int next = 0;
+
+  /**
+   * @param windowSize Number of recent samples to keep
+   * @param maxValue Upper edge of the last regular bin
+   * @param binCount Number of bins
+   */
+  public RollingHistogram(int windowSize, double maxValue, int binCount) {
+    binWidth = maxValue / binCount;
+    binCounts = new int[binCount];
+    window = new double[windowSize];
+    windowBins = new int[windowSize];
+  }
+
+  /** Adds a sample, ignoring NaN. */
+  public void add(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (size == window.length) {
+      binCounts[windowBins[next]]--;
+    } else {
+      size++;
+    }
+    int bin = (int) Math.max(0.0, Math.min(binCounts.length - 1, Math.floor(value / binWidth)));
+    window[next] = value;
+    windowBins[next] = bin;
+    binCounts[bin]++;
+    next = (next + 1) % window.length;
+  }
+
+  public int getCount() {
+    return size;
+  }
+
+  /**
+   * Returns the upper edge of the bin containing the given percentile, or NaN with no samples.
+   *
+   * @param percentile Percentile from 0 to 1
+   */
+  public double getPercentile(double percentile) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    int target = (int) Math.ceil(percentile * size);
+    int cumulative = 0;
+    for (int i = 0; i < binCounts.length; i++) {
+      cumulative += binCounts[i];
+      if (cumulative >= Math.max(target, 1)) {
+        return i == binCounts.length - 1 ? getMax() : (i + 1) * binWidth;
+      }
+    }
+    return getMax();
+  }
+
+  /** Returns the largest sample in the window, or NaN with no samples. */
+  public double getMax() {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < size; i++) {
+      max = Math.max(max, window[i]);
+    }
+    return max;
+  }
+
+  /** Returns the live bin counts, which must not be modified. */
+  public int[] getBinCounts() {
+    return binCounts;
+  }
+}
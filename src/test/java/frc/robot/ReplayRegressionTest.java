@@ -0,0 +1,275 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.RobotType;
+import frc.robot.util.MappedWPILOGReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+
+/**
+ * Replays every log in the corpus with the current code and checks that the pose estimate and aim
+ * have not gotten worse, and that replay has not gotten slower. For each log it measures:
+ *
+ * <ul>
+ *   <li>RMS distance between the replayed pose estimate and multi-tag vision poses
+ *   <li>RMS and max difference between the replayed aim angles and those the robot logged
+ *   <li>Replayed cycles per second, including JVM startup
+ * </ul>
+ *
+ * <p>Metrics are compared against the committed baseline, or for logs without one, the pose error
+ * is compared against the code that ran on the robot. Aim has nothing to fall back to, so a log
+ * with aim outputs fails until its baseline is saved, and a log with neither vision frames nor aim
+ * outputs fails since it checks nothing. Run with "-PupdateReplayBaseline" to save the current
+ * metrics as the new baseline after an intended change. Throughput depends on the machine, so it
+ * is only checked with "-PcheckReplayThroughput", against a baseline saved on the same one.
+ */
+public class ReplayRegressionTest {
+  private static final Path CORPUS = Path.of("src", "test", "resources", "replay");
+  private static final Path BASELINE = CORPUS.resolve("baseline.properties");
+
+  private static final double POSE_RMS_TOLERANCE_METERS = 0.02;
+  private static final double POSE_RMS_TOLERANCE_FRACTION = 0.05;
+  private static final double AIM_RMS_TOLERANCE_RADIANS = Math.toRadians(0.5);
+  private static final double MIN_THROUGHPUT_FRACTION = 0.75;
+  private static final int MIN_VISION_TAGS = 2;
+
+  private static final String ESTIMATED_POSE_KEY = "RobotState/Pose Data/Estimated Pose";
+  private static final String[] AIM_KEYS = {
+    "RobotState/ControlData/Speaker Robot Angle",
+    "RobotState/ControlData/Speaker Arm Angle",
+    "RobotState/ControlData/Feed Robot Angle",
+    "RobotState/ControlData/Feed Arm Angle"
+  };
+
+  @TempDir Path directory;
+
+  @Test
+  public void replayedLogsDoNotRegress() throws Exception {
+    assumeTrue(Constants.ROBOT != RobotType.ROBOT_SIM, "Replay needs a real robot type");
+    List<Path> logs;
+    try (Stream<Path> files = Files.list(CORPUS)) {
+      logs = files.filter(path -> path.toString().endsWith(".wpilog")).sorted().toList();
+    } catch (IOException e) {
+      logs = List.of();
+    }
+    assumeFalse(logs.isEmpty(), "No logs in " + CORPUS);
+
+    Properties baseline = new Properties();
+    if (Files.exists(BASELINE)) {
+      try (InputStream input = Files.newInputStream(BASELINE)) {
+        baseline.load(input);
+      }
+    }
+
+    Properties current = new Properties();
+    List<String> failures = new ArrayList<>();
+    for (Path log : logs) {
+      // Replay a copy, so the "_sim" output does not land in the source tree
+      Path copy = Files.copy(log, directory.resolve(log.getFileName()));
+      BatchReplay.Result result = BatchReplay.replay(copy);
+      assertEquals(0, result.exitCode(), "Replay of " + log.getFileName() + " failed");
+      String name = log.getFileName().toString();
+      Path output = copy.resolveSibling(name.substring(0, name.length() - 7) + "_sim.wpilog");
+      Metrics metrics = measure(output, result.seconds());
+      System.out.println(name + ": " + metrics);
+
+      String prefix = name + ".";
+      current.setProperty(prefix + "poseRms", Double.toString(metrics.replayPoseRms()));
+      current.setProperty(prefix + "aimRms", Double.toString(metrics.aimRms()));
+      current.setProperty(prefix + "cyclesPerSecond", Double.toString(metrics.cyclesPerSecond()));
+
+      double poseBaseline =
+          Double.parseDouble(
+              baseline.getProperty(prefix + "poseRms", Double.toString(metrics.realPoseRms())));
+      if (metrics.replayPoseRms()
+          > poseBaseline * (1.0 + POSE_RMS_TOLERANCE_FRACTION) + POSE_RMS_TOLERANCE_METERS) {
+        failures.add(
+            String.format(
+                "%s: pose RMS vs vision %.3f m, baseline %.3f m",
+                name, metrics.replayPoseRms(), poseBaseline));
+      }
+      if (metrics.visionFrames() == 0 && metrics.aimSamples() == 0) {
+        failures.add(name + ": no multi-tag vision frames or aim outputs, nothing was checked");
+      }
+      if (metrics.aimSamples() > 0 && !baseline.containsKey(prefix + "aimRms")) {
+        failures.add(name + ": no aim baseline, save one with -PupdateReplayBaseline");
+      }
+      if (metrics.aimSamples() > 0 && baseline.containsKey(prefix + "aimRms")) {
+        double aimBaseline = Double.parseDouble(baseline.getProperty(prefix + "aimRms"));
+        if (metrics.aimRms() > aimBaseline + AIM_RMS_TOLERANCE_RADIANS) {
+          failures.add(
+              String.format(
+                  "%s: aim RMS delta %.2f deg, baseline %.2f deg",
+                  name, Math.toDegrees(metrics.aimRms()), Math.toDegrees(aimBaseline)));
+        }
+      }
+      if (Boolean.getBoolean("replay.checkThroughput")
+          && baseline.containsKey(prefix + "cyclesPerSecond")) {
+        double throughputBaseline =
+            Double.parseDouble(baseline.getProperty(prefix + "cyclesPerSecond"));
+        if (metrics.cyclesPerSecond() < throughputBaseline * MIN_THROUGHPUT_FRACTION) {
+          failures.add(
+              String.format(
+                  "%s: %.0f cycles per second, baseline %.0f",
+                  name, metrics.cyclesPerSecond(), throughputBaseline));
+        }
+      }
+    }
+
+    if (Boolean.getBoolean("replay.updateBaseline")) {
+      try (OutputStream output = Files.newOutputStream(BASELINE)) {
+        current.store(output, "Replay regression baseline, see ReplayRegressionTest");
+      }
+      return;
+    }
+    assertTrue(failures.isEmpty(), "Replay regressed:\n" + String.join("\n", failures));
+  }
+
+  /** Reads a replayed log and computes its metrics. */
+  private static Metrics measure(Path log, double replaySeconds) {
+    MappedWPILOGReader reader = new MappedWPILOGReader(log.toString());
+    reader.start();
+    LogTable table = new LogTable(0);
+
+    Map<String, Double> lastFrameTimestamps = new HashMap<>();
+    double replayPoseSquares = 0.0;
+    double realPoseSquares = 0.0;
+    int visionFrames = 0;
+    double aimSquares = 0.0;
+    double aimMax = 0.0;
+    int aimSamples = 0;
+    int cycles = 0;
+    while (reader.updateTable(table)) {
+      cycles++;
+      Map<String, LogValue> values = table.getAll(false);
+
+      Pose2d replayPose = getPose2d(values, "/ReplayOutputs/" + ESTIMATED_POSE_KEY);
+      Pose2d realPose = getPose2d(values, "/RealOutputs/" + ESTIMATED_POSE_KEY);
+      if (replayPose != null && realPose != null) {
+        for (Map.Entry<String, LogValue> entry : values.entrySet()) {
+          String key = entry.getKey();
+          if (!key.startsWith("/Vision/Cameras/") || !key.endsWith("/PrimaryPoses")) {
+            continue;
+          }
+          String camera = key.substring(0, key.length() - "PrimaryPoses".length());
+          LogValue timestamps = values.get(camera + "FrameTimestamps");
+          LogValue tagCounts = values.get(camera + "TagCounts");
+          if (timestamps == null || tagCounts == null) {
+            continue;
+          }
+          // Inputs stay in the table until they change, only count each frame once
+          Pose3d[] poses = getPose3ds(entry.getValue());
+          double lastTimestamp =
+              lastFrameTimestamps.getOrDefault(camera, Double.NEGATIVE_INFINITY);
+          int frames = Math.min(poses.length, timestamps.getDoubleArray().length);
+          for (int i = 0; i < frames; i++) {
+            double timestamp = timestamps.getDoubleArray()[i];
+            if (timestamp <= lastTimestamp || tagCounts.getIntegerArray()[i] < MIN_VISION_TAGS) {
+              continue;
+            }
+            Pose2d visionPose = poses[i].toPose2d();
+            replayPoseSquares +=
+                square(replayPose.getTranslation().getDistance(visionPose.getTranslation()));
+            realPoseSquares +=
+                square(realPose.getTranslation().getDistance(visionPose.getTranslation()));
+            visionFrames++;
+            lastFrameTimestamps.put(camera, timestamp);
+          }
+        }
+      }
+
+      for (String aimKey : AIM_KEYS) {
+        Rotation2d replayAngle = getRotation2d(values, "/ReplayOutputs/" + aimKey);
+        Rotation2d realAngle = getRotation2d(values, "/RealOutputs/" + aimKey);
+        if (replayAngle != null && realAngle != null) {
+          double delta = Math.abs(replayAngle.minus(realAngle).getRadians());
+          aimSquares += square(delta);
+          aimMax = Math.max(aimMax, delta);
+          aimSamples++;
+        }
+      }
+    }
+    reader.end();
+
+    return new Metrics(
+        visionFrames > 0 ? Math.sqrt(replayPoseSquares / visionFrames) : 0.0,
+        visionFrames > 0 ? Math.sqrt(realPoseSquares / visionFrames) : 0.0,
+        visionFrames,
+        aimSamples > 0 ? Math.sqrt(aimSquares / aimSamples) : 0.0,
+        aimMax,
+        aimSamples,
+        cycles / replaySeconds);
+  }
+
+  private static Pose2d getPose2d(Map<String, LogValue> values, String key) {
+    LogValue value = values.get(key);
+    return value == null ? null : Pose2d.struct.unpack(wrap(value.getRaw()));
+  }
+
+  private static Rotation2d getRotation2d(Map<String, LogValue> values, String key) {
+    LogValue value = values.get(key);
+    return value == null ? null : Rotation2d.struct.unpack(wrap(value.getRaw()));
+  }
+
+  private static Pose3d[] getPose3ds(LogValue value) {
+    ByteBuffer buffer = wrap(value.getRaw());
+    Pose3d[] poses = new Pose3d[buffer.remaining() / Pose3d.struct.getSize()];
+    for (int i = 0; i < poses.length; i++) {
+      poses[i] = Pose3d.struct.unpack(buffer);
+    }
+    return poses;
+  }
+
+  private static ByteBuffer wrap(byte[] bytes) {
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+
+  private static record Metrics(
+      double replayPoseRms,
+      double realPoseRms,
+      int visionFrames,
+      double aimRms,
+      double aimMax,
+      int aimSamples,
+      double cyclesPerSecond) {
+    @Override
+    public String toString() {
+      return String.format(
+          "pose RMS vs vision %.3f m (robot %.3f m, %d frames), aim delta RMS %.2f deg (max"
+              + " %.2f deg, %d samples), %.0f cycles per second",
+          replayPoseRms,
+          realPoseRms,
+          visionFrames,
+          Math.toDegrees(aimRms),
+          Math.toDegrees(aimMax),
+          aimSamples,
+          cyclesPerSecond);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.wpilog.WPILOGReader;
+
+/** Writes tables with the buffered writer and reads them back with the stock reader. */
+public class BufferedWPILOGWriterTest {
+  private static final int CYCLES = 200;
+  private static final int LARGE_BYTES = 2 * 1024 * 1024;
+  private static final long CYCLE_MICROS = 20000;
+
+  @TempDir Path directory;
+
+  @Test
+  public void roundTrip() throws IOException {
+    List<Map<String, LogValue>> expected = write(false, this::putCycle);
+    assertMatches(expected, readLog(findLog(".wpilog")));
+  }
+
+  @Test
+  public void roundTripCompressed() throws IOException {
+    List<Map<String, LogValue>> expected = write(true, this::putCycle);
+    Path log = directory.resolve("decompressed.wpilog");
+    try (InputStream input = new GZIPInputStream(Files.newInputStream(findLog(".wpilog.gz")))) {
+      Files.copy(input, log);
+    }
+    assertMatches(expected, readLog(log));
+  }
+
+  @Test
+  public void shedValuesAreWrittenLater() throws IOException {
+    byte[] first = filled(LARGE_BYTES, (byte) 1);
+    byte[] second = filled(LARGE_BYTES, (byte) 2);
+    List<Map<String, LogValue>> expected =
+        write(
+            false,
+            (table, cycle) -> {
+              putCycle(table, cycle);
+              if (cycle == 0) {
+                // Together these are past the output fill limit, so the second one is shed
+                table.put("RealOutputs/Large/First", first);
+                table.put("RealOutputs/Large/Second", second);
+              }
+              if (cycle < 5) {
+                sleep(150); // Past the flush period, so the full buffer gets swapped out
+              }
+            });
+    List<Map<String, LogValue>> actual = readLog(findLog(".wpilog"));
+
+    // Only one of them fits in the first cycle, whichever the table listed first
+    assertTrue(
+        actual.get(0).containsKey("/RealOutputs/Large/First")
+            != actual.get(0).containsKey("/RealOutputs/Large/Second"),
+        "Expected exactly one large value to be shed");
+    Map<String, LogValue> last = actual.get(actual.size() - 1);
+    assertNotNull(last.get("/RealOutputs/Large/First"), "Shed value was never written");
+    assertNotNull(last.get("/RealOutputs/Large/Second"), "Shed value was never written");
+    assertArrayEquals(first, last.get("/RealOutputs/Large/First").getRaw());
+    assertArrayEquals(second, last.get("/RealOutputs/Large/Second").getRaw());
+
+    // Everything else, inputs included, is written on time
+    for (int i = 0; i < actual.size(); i++) {
+      Map<String, LogValue> cycle = new HashMap<>(actual.get(i));
+      Map<String, LogValue> expectedCycle = new HashMap<>(expected.get(i));
+      cycle.keySet().removeIf(key -> key.startsWith("/RealOutputs/Large/"));
+      expectedCycle.keySet().removeIf(key -> key.startsWith("/RealOutputs/Large/"));
+      assertValuesEqual(expectedCycle, cycle, i);
+    }
+  }
+
+  /** Puts values of every type, some changing every cycle and some only now and then. */
+  private void putCycle(LogTable table, int cycle) {
+    table.put("Inputs/Double", Math.sin(cycle * 0.1));
+    table.put("Inputs/Integer", (long) cycle / 10);
+    table.put("Inputs/Boolean", cycle % 7 < 3);
+    table.put("Inputs/Float", (float) cycle * 0.5f);
+    table.put("Inputs/DoubleArray", new double[] {cycle, cycle * 2.0, -cycle});
+    table.put("Inputs/IntegerArray", new long[] {cycle % 3, Long.MAX_VALUE});
+    table.put("Inputs/BooleanArray", new boolean[] {cycle % 2 == 0, true});
+    table.put("Inputs/FloatArray", new float[] {cycle * 0.25f});
+    table.put("Inputs/Raw", new byte[] {(byte) cycle, 0, (byte) 0xff});
+    table.put("RealOutputs/String", "Mode " + cycle / 50);
+    table.put(
+        "RealOutputs/StringArray",
+        cycle % 20 < 10 ? new String[] {"a", "b" + cycle / 20} : new String[] {});
+    table.put("RealOutputs/Pose", new Pose2d(cycle * 0.01, 1.0, Rotation2d.fromDegrees(cycle)));
+    table.put(
+        "RealOutputs/Poses",
+        new Pose2d[] {new Pose2d(), new Pose2d(cycle % 5, 2.0, Rotation2d.fromDegrees(90.0))});
+  }
+
+  /** Writes a log, returning a copy of the table after every cycle. */
+  private List<Map<String, LogValue>> write(boolean compress, CycleWriter cycleWriter) {
+    BufferedWPILOGWriter writer = new BufferedWPILOGWriter(directory.toString(), compress);
+    writer.start();
+    LogTable table = new LogTable(0);
+    List<Map<String, LogValue>> expected = new ArrayList<>();
+    for (int cycle = 0; cycle < CYCLES; cycle++) {
+      table.setTimestamp(CYCLE_MICROS * (cycle + 1));
+      cycleWriter.write(table, cycle);
+      writer.putTable(table);
+      expected.add(new HashMap<>(table.getAll(false)));
+    }
+    writer.end();
+    return expected;
+  }
+
+  /** Reads every cycle of a log with the stock reader. */
+  private static List<Map<String, LogValue>> readLog(Path log) {
+    WPILOGReader reader = new WPILOGReader(log.toString());
+    reader.start();
+    LogTable table = new LogTable(0);
+    List<Map<String, LogValue>> cycles = new ArrayList<>();
+    while (reader.updateTable(table)) {
+      assertEquals(CYCLE_MICROS * (cycles.size() + 1), table.getTimestamp());
+      cycles.add(new HashMap<>(table.getAll(false)));
+    }
+    reader.end();
+    // The stock reader stops one cycle early
+    assertTrue(cycles.size() >= CYCLES - 1, "Only read " + cycles.size() + " cycles");
+    return cycles;
+  }
+
+  private static void assertMatches(
+      List<Map<String, LogValue>> expected, List<Map<String, LogValue>> actual) {
+    for (int i = 0; i < actual.size(); i++) {
+      assertValuesEqual(expected.get(i), actual.get(i), i);
+    }
+  }
+
+  private static void assertValuesEqual(
+      Map<String, LogValue> expected, Map<String, LogValue> actual, int cycle) {
+    assertEquals(expected.keySet(), actual.keySet(), "Keys differ in cycle " + cycle);
+    for (Map.Entry<String, LogValue> entry : expected.entrySet()) {
+      String message = entry.getKey() + " differs in cycle " + cycle;
+      LogValue expectedValue = entry.getValue();
+      LogValue actualValue = actual.get(entry.getKey());
+      assertEquals(expectedValue.type, actualValue.type, message);
+      assertEquals(expectedValue.getWPILOGType(), actualValue.getWPILOGType(), message);
+      switch (expectedValue.type) {
+        case Raw -> assertArrayEquals(expectedValue.getRaw(), actualValue.getRaw(), message);
+        case Boolean -> assertEquals(expectedValue.getBoolean(), actualValue.getBoolean(), message);
+        case Integer -> assertEquals(expectedValue.getInteger(), actualValue.getInteger(), message);
+        case Float -> assertEquals(expectedValue.getFloat(), actualValue.getFloat(), message);
+        case Double -> assertEquals(expectedValue.getDouble(), actualValue.getDouble(), message);
+        case String -> assertEquals(expectedValue.getString(), actualValue.getString(), message);
+        case BooleanArray ->
+            assertArrayEquals(
+                expectedValue.getBooleanArray(), actualValue.getBooleanArray(), message);
+        case IntegerArray ->
+            assertArrayEquals(
+                expectedValue.getIntegerArray(), actualValue.getIntegerArray(), message);
+        case FloatArray ->
+            assertArrayEquals(expectedValue.getFloatArray(), actualValue.getFloatArray(), message);
+        case DoubleArray ->
+            assertArrayEquals(
+                expectedValue.getDoubleArray(), actualValue.getDoubleArray(), message);
+        case StringArray ->
+            assertArrayEquals(
+                expectedValue.getStringArray(), actualValue.getStringArray(), message);
+        default -> {}
+      }
+    }
+  }
+
+  private Path findLog(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> logs = files.filter(path -> path.toString().endsWith(suffix)).toList();
+      assertEquals(1, logs.size(), "Expected one log file, found " + logs);
+      return logs.get(0);
+    }
+  }
+
+  private static byte[] filled(int length, byte value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, value);
+    return bytes;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @FunctionalInterface
+  private static interface CycleWriter {
+    void write(LogTable table, int cycle);
+  }
+}
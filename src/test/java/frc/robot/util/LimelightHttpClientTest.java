@@ -0,0 +1,152 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LimelightHttpClientTest {
+  private static final long TEST_TIMEOUT_MILLIS = 5000;
+
+  private HttpServer server;
+  private LimelightHttpClient client;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final AtomicReference<String> lastSnapshotName = new AtomicReference<>();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/limelight-test/status", exchange -> respond(exchange, 200, "ok"));
+    server.createContext(
+        "/limelight-test/capturesnapshot",
+        exchange -> {
+          lastSnapshotName.set(exchange.getRequestHeaders().getFirst("snapname"));
+          respond(exchange, 200, "");
+        });
+    server.createContext("/limelight-test/missing", exchange -> respond(exchange, 404, ""));
+    server.createContext(
+        "/limelight-test/slow",
+        exchange -> {
+          int current = inFlight.incrementAndGet();
+          maxInFlight.accumulateAndGet(current, Math::max);
+          try {
+            release.await(TEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          inFlight.decrementAndGet();
+          respond(exchange, 200, "slow");
+        });
+    server.start();
+
+    client =
+        new LimelightHttpClient(
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/%s/%s",
+            2,
+            8,
+            Duration.ofMillis(500));
+  }
+
+  @AfterEach
+  public void stopServer() {
+    release.countDown();
+    client.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void completesOnlyFromPoll() throws Exception {
+    AtomicReference<Thread> callbackThread = new AtomicReference<>();
+    CompletableFuture<String> status = client.getStatus("limelight-test");
+    status.thenAccept(body -> callbackThread.set(Thread.currentThread()));
+
+    Thread.sleep(200);
+    assertFalse(status.isDone());
+    pollUntilDone(status);
+    assertEquals("ok", status.get());
+    assertSame(Thread.currentThread(), callbackThread.get());
+  }
+
+  @Test
+  public void sendsSnapshotName() throws Exception {
+    CompletableFuture<String> snapshot = client.takeSnapshot("limelight-test", "auto-start");
+    pollUntilDone(snapshot);
+    assertEquals("auto-start", lastSnapshotName.get());
+  }
+
+  @Test
+  public void failsOnErrorStatus() throws Exception {
+    CompletableFuture<String> missing =
+        client.uploadPipeline("limelight-test/missing", 0, "{}");
+    pollUntilDone(missing);
+    assertTrue(missing.isCompletedExceptionally());
+  }
+
+  @Test
+  public void limitsConcurrentRequests() throws Exception {
+    CompletableFuture<?>[] requests = new CompletableFuture<?>[5];
+    for (int i = 0; i < requests.length; i++) {
+      requests[i] = client.getStatus("limelight-test/slow");
+    }
+    Thread.sleep(200);
+    assertEquals(2, inFlight.get());
+    assertEquals(3, client.getPendingCount());
+
+    release.countDown();
+    pollUntilDone(CompletableFuture.allOf(requests));
+    assertEquals(2, maxInFlight.get());
+  }
+
+  @Test
+  public void timesOut() throws Exception {
+    CompletableFuture<String> slow = client.getStatus("limelight-test/slow");
+    pollUntilDone(slow);
+    ExecutionException exception = null;
+    try {
+      slow.get();
+    } catch (ExecutionException e) {
+      exception = e;
+    }
+    assertInstanceOf(HttpTimeoutException.class, exception.getCause());
+  }
+
+  private void pollUntilDone(CompletableFuture<?> future) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TEST_TIMEOUT_MILLIS;
+    while (!future.isDone() && System.currentTimeMillis() < deadline) {
+      client.poll();
+      Thread.sleep(5);
+    }
+    assertTrue(future.isDone());
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length > 0) {
+      exchange.getResponseBody().write(bytes);
+    }
+    exchange.close();
+  }
+}
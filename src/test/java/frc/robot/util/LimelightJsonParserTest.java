@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import frc.robot.util.LimelightHelpers.LimelightResults;
+import org.junit.jupiter.api.Test;
+
+public class LimelightJsonParserTest {
+  static final String JSON =
+      "{\"pID\":1.0,\"tl\":18.2,\"cl\":11.5,\"ts\":112233.4,\"ts_rio\":56.78,\"v\":1,"
+          + "\"botpose\":[1,2,0,0,0,90],\"botpose_wpired\":[15,6,0,0,0,-90],"
+          + "\"botpose_wpiblue\":[1.5,5.5,0.1,0.0,-1.0,90.0],\"botpose_tagcount\":2,"
+          + "\"botpose_span\":0.6,\"botpose_avgdist\":3.2,\"botpose_avgarea\":0.4,"
+          + "\"t6c_rs\":[0,0,0,0,0,0],\"Retro\":[],\"Classifier\":[],\"Barcode\":[],"
+          + "\"Fiducial\":["
+          + "{\"fID\":7,\"fam\":\"36H11C\",\"pts\":[],\"skew\":[],\"t6c_ts\":[1,2,3,4,5,6],"
+          + "\"t6r_fs\":[1,2,3,4,5,6],\"t6r_ts\":[1,2,3,4,5,6],\"t6t_cs\":[1,2,3,4,5,6],"
+          + "\"t6t_rs\":[1,2,3,4,5,6],\"ta\":0.5,\"tx\":-3.5,\"txp\":140,\"ty\":2.25,"
+          + "\"typ\":100},"
+          + "{\"fID\":8,\"fam\":\"36H11C\",\"pts\":[],\"skew\":[],\"t6c_ts\":[1,2,3,4,5,6],"
+          + "\"t6r_fs\":[1,2,3,4,5,6],\"t6r_ts\":[1,2,3,4,5,6],\"t6t_cs\":[1,2,3,4,5,6],"
+          + "\"t6t_rs\":[1,2,3,4,5,6],\"ta\":0.3,\"tx\":4.0,\"txp\":180,\"ty\":1.5,"
+          + "\"typ\":104}],"
+          + "\"Detector\":[{\"class\":\"note\",\"classID\":0,\"conf\":0.87,\"pts\":[],"
+          + "\"ta\":0.02,\"tx\":-12.0,\"txp\":60,\"ty\":-8.5,\"typ\":200}]}";
+
+  private final ObjectMapper mapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  @Test
+  public void matchesObjectMapper() throws Exception {
+    LimelightResults expected = mapper.readValue(JSON, LimelightResults.class);
+    LimelightJsonResults actual = new LimelightJsonResults();
+    new LimelightJsonParser().parse(JSON, actual);
+
+    assertEquals(expected.pipelineID, actual.pipelineIndex);
+    assertEquals(expected.latency_pipeline, actual.latencyPipeline);
+    assertEquals(expected.latency_capture, actual.latencyCapture);
+    assertEquals(expected.timestamp_LIMELIGHT_publish, actual.timestampLimelightPublish);
+    assertEquals(expected.timestamp_RIOFPGA_capture, actual.timestampRioCapture);
+    assertEquals(expected.valid, actual.valid);
+    for (int i = 0; i < 6; i++) {
+      assertEquals(expected.botpose_wpiblue[i], actual.botposeWpiBlue[i]);
+    }
+    assertEquals(expected.botpose_tagcount, actual.botposeTagCount);
+    assertEquals(expected.botpose_avgdist, actual.botposeAverageDistance);
+
+    assertEquals(expected.targets_Fiducials.length, actual.fiducialCount);
+    for (int i = 0; i < actual.fiducialCount; i++) {
+      assertEquals((int) expected.targets_Fiducials[i].fiducialID, actual.fiducials[i].id);
+      assertEquals(expected.targets_Fiducials[i].tx, actual.fiducials[i].tx);
+      assertEquals(expected.targets_Fiducials[i].ty, actual.fiducials[i].ty);
+      assertEquals(expected.targets_Fiducials[i].ta, actual.fiducials[i].ta);
+    }
+    assertEquals(expected.targets_Detector.length, actual.detectorCount);
+    assertEquals((int) expected.targets_Detector[0].classID, actual.detectors[0].classId);
+    assertEquals(expected.targets_Detector[0].confidence, actual.detectors[0].confidence);
+    assertEquals(expected.targets_Detector[0].tx, actual.detectors[0].tx);
+  }
+
+  @Test
+  public void reusesResultsBetweenParses() throws Exception {
+    LimelightJsonParser parser = new LimelightJsonParser();
+    LimelightJsonResults results = new LimelightJsonResults();
+    parser.parse(JSON, results);
+    parser.parse("{\"v\":0,\"Fiducial\":[]}", results);
+
+    assertEquals(false, results.valid);
+    assertEquals(0, results.fiducialCount);
+    assertEquals(0, results.detectorCount);
+    assertEquals(0.0, results.botposeWpiBlue[0]);
+  }
+}
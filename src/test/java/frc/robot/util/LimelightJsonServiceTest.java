@@ -0,0 +1,141 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
+import frc.robot.util.LimelightHelpers.LimelightResults;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/** Publishes dumps on a local NetworkTables instance and reads them back through the service. */
+public class LimelightJsonServiceTest {
+  private static final String JSON = LimelightJsonParserTest.JSON;
+  private static final long TIMEOUT_MILLIS = 1000;
+  private static final int WARMUP_DUMPS = 200;
+  private static final int BENCHMARK_DUMPS = 1000;
+
+  private NetworkTableInstance instance;
+  private StringPublisher publisher;
+  private LimelightJsonService service;
+
+  @BeforeEach
+  public void setup() {
+    instance = NetworkTableInstance.create();
+    publisher = instance.getStringTopic("json").publish();
+    service =
+        new LimelightJsonService(
+            instance.getStringTopic("json").subscribe("", PubSubOption.keepDuplicates(true)),
+            "test");
+    service.start();
+  }
+
+  @AfterEach
+  public void teardown() {
+    service.stop();
+    instance.close();
+  }
+
+  @Test
+  public void parsesOnlyWhenTheDumpChanges() throws InterruptedException {
+    publisher.set(JSON);
+    waitFor(() -> service.getParseCount() == 1);
+    Thread.sleep(50); // Several polls with nothing new
+    assertEquals(1, service.getParseCount());
+
+    LimelightJsonResults results = service.getLatest();
+    assertEquals(1, results.sequence);
+    assertTrue(results.valid);
+    assertEquals(2, results.fiducialCount);
+    assertEquals(7, results.fiducials[0].id);
+    assertSame(results, service.getLatest(), "Results changed with nothing new parsed");
+
+    publisher.set("{\"v\":0,\"Fiducial\":[]}");
+    waitFor(() -> service.getParseCount() == 2);
+    results = service.getLatest();
+    assertEquals(2, results.sequence);
+    assertFalse(results.valid);
+    assertEquals(0, results.fiducialCount);
+    assertEquals(0, service.getParseErrors());
+  }
+
+  @Test
+  public void countsInvalidDumpsAndKeepsTheLastResults() {
+    publisher.set(JSON);
+    waitFor(() -> service.getParseCount() == 1);
+    publisher.set("not json");
+    waitFor(() -> service.getParseErrors() == 1);
+
+    LimelightJsonResults results = service.getLatest();
+    assertEquals(1, results.sequence);
+    assertEquals(2, results.fiducialCount);
+  }
+
+  /**
+   * Compares what the main loop pays per dump with the service, a buffer swap, against parsing the
+   * dump with ObjectMapper as LimelightHelpers.getLatestResults does.
+   */
+  @Test
+  @Tag("benchmark")
+  public void benchmarkAgainstObjectMapper() throws Exception {
+    ObjectMapper mapper =
+        new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    for (int i = 0; i < WARMUP_DUMPS; i++) {
+      publishAndWait(i);
+      mapper.readValue(JSON, LimelightResults.class);
+    }
+
+    long callerNanos = 0;
+    double parseMillis = 0.0;
+    long latencyNanos = 0;
+    for (int i = WARMUP_DUMPS; i < WARMUP_DUMPS + BENCHMARK_DUMPS; i++) {
+      long published = publishAndWait(i);
+      latencyNanos += System.nanoTime() - published;
+      long start = System.nanoTime();
+      LimelightJsonResults results = service.getLatest();
+      callerNanos += System.nanoTime() - start;
+      parseMillis += results.parseTimeMillis;
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < BENCHMARK_DUMPS; i++) {
+      mapper.readValue(JSON, LimelightResults.class);
+    }
+    double objectMapperMicros = (System.nanoTime() - start) / 1e3 / BENCHMARK_DUMPS;
+
+    System.out.printf(
+        "Limelight JSON service: main loop %.2f us, background parse %.2f us, latency %.2f ms;"
+            + " ObjectMapper on the main loop %.2f us%n",
+        callerNanos / 1e3 / BENCHMARK_DUMPS,
+        parseMillis * 1e3 / BENCHMARK_DUMPS,
+        latencyNanos / 1e6 / BENCHMARK_DUMPS,
+        objectMapperMicros);
+  }
+
+  /** Publishes a distinct dump and waits until the service has parsed it. */
+  private long publishAndWait(int index) {
+    long published = System.nanoTime();
+    // Trailing whitespace keeps the dump valid and makes every value distinct
+    publisher.set(index % 2 == 0 ? JSON : JSON + " ");
+    long expected = index + 1;
+    waitFor(() -> service.getParseCount() == expected);
+    return published;
+  }
+
+  private static void waitFor(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the service");
+      Thread.onSpinWait();
+    }
+  }
+}
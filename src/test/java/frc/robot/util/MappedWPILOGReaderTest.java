@@ -0,0 +1,166 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.datalog.DataLog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.littletonrobotics.junction.LogReplaySource;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.wpilog.WPILOGReader;
+
+public class MappedWPILOGReaderTest {
+  private static final int SIGNALS = 150;
+  private static final int ARRAYS = 20;
+  private static final int BENCHMARK_CYCLES = 14000; // About 50 MB
+  private static final int BENCHMARK_RUNS = 3;
+
+  @TempDir Path directory;
+
+  @Test
+  public void matchesStockReader() throws IOException {
+    assertMatchesStockReader(writeLog(500));
+  }
+
+  @Test
+  public void matchesStockReaderWithTruncatedTail() throws IOException {
+    // Like a log cut off by a brownout, the last record is only partly written
+    Path log = writeLog(500);
+    byte[] bytes = Files.readAllBytes(log);
+    Path truncated = directory.resolve("truncated.wpilog");
+    Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 5));
+    assertMatchesStockReader(truncated);
+  }
+
+  @Test
+  public void reusesIndex() throws IOException {
+    Path log = writeLog(100);
+    MappedWPILOGReader first = new MappedWPILOGReader(log.toString());
+    first.start();
+    Path index = log.resolveSibling(log.getFileName() + ".index");
+    assertTrue(Files.exists(index));
+
+    MappedWPILOGReader second = new MappedWPILOGReader(log.toString());
+    second.start();
+    assertEquals(first.getCycleCount(), second.getCycleCount());
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void benchmark() throws IOException {
+    Path log = writeLog(BENCHMARK_CYCLES);
+    double megabytes = Files.size(log) / 1e6;
+
+    double stockSeconds = Double.POSITIVE_INFINITY;
+    double coldSeconds = Double.POSITIVE_INFINITY;
+    double warmSeconds = Double.POSITIVE_INFINITY;
+    Path index = log.resolveSibling(log.getFileName() + ".index");
+    for (int i = 0; i < BENCHMARK_RUNS; i++) {
+      stockSeconds = Math.min(stockSeconds, replay(new WPILOGReader(log.toString())));
+      Files.deleteIfExists(index);
+      coldSeconds = Math.min(coldSeconds, replay(new MappedWPILOGReader(log.toString())));
+      warmSeconds = Math.min(warmSeconds, replay(new MappedWPILOGReader(log.toString())));
+    }
+    System.out.printf(
+        "%.1f MB log: stock %.0f ms, mapped %.0f ms (%.0f ms with index cached), %.1fx faster%n",
+        megabytes,
+        stockSeconds * 1e3,
+        coldSeconds * 1e3,
+        warmSeconds * 1e3,
+        stockSeconds / warmSeconds);
+  }
+
+  private static void assertMatchesStockReader(Path log) {
+    LogReplaySource stock = new WPILOGReader(log.toString());
+    LogReplaySource mapped = new MappedWPILOGReader(log.toString());
+    stock.start();
+    mapped.start();
+
+    LogTable stockTable = new LogTable(0);
+    LogTable mappedTable = new LogTable(0);
+    int cycles = 0;
+    while (stock.updateTable(stockTable)) {
+      assertTrue(mapped.updateTable(mappedTable), "Mapped reader ended early");
+      assertEquals(stockTable.getTimestamp(), mappedTable.getTimestamp());
+      assertEquals(stockTable.getAll(false), mappedTable.getAll(false));
+      cycles++;
+    }
+    assertFalse(mapped.updateTable(mappedTable), "Mapped reader has extra cycles");
+    assertTrue(cycles > 0);
+  }
+
+  /** Replays a whole log as fast as possible and returns the seconds taken. */
+  private static double replay(LogReplaySource source) {
+    long start = System.nanoTime();
+    source.start();
+    LogTable table = new LogTable(0);
+    while (source.updateTable(table)) {}
+    source.end();
+    return (System.nanoTime() - start) / 1e9;
+  }
+
+  /**
+   * Writes a log shaped like a match, with doubles changing every cycle, some arrays, a struct
+   * with its schema and raw bytes.
+   */
+  private Path writeLog(int cycles) {
+    String fileName = "match_" + cycles + ".wpilog";
+    String metadata = "{\"source\":\"AdvantageKit\"}";
+    DataLog log = new DataLog(directory.toString(), fileName, 0.25, "AdvantageKit");
+    int timestampEntry = log.start("/Timestamp", "int64", metadata, 0);
+    int[] signalEntries = new int[SIGNALS];
+    for (int i = 0; i < SIGNALS; i++) {
+      signalEntries[i] = log.start("/RealOutputs/Signal " + i, "double", metadata, 0);
+    }
+    int[] arrayEntries = new int[ARRAYS];
+    for (int i = 0; i < ARRAYS; i++) {
+      arrayEntries[i] = log.start("/Inputs/Array " + i, "double[]", metadata, 0);
+    }
+    int enabledEntry = log.start("/DriverStation/Enabled", "boolean", metadata, 0);
+    int modeEntry = log.start("/RealOutputs/Mode", "string", metadata, 0);
+    int schemaEntry = log.start("/.schema/struct:Pose2d", "structschema", metadata, 0);
+    int poseEntry = log.start("/RealOutputs/Pose", "struct:Pose2d", metadata, 0);
+    int rawEntry = log.start("/Inputs/Raw", "raw", metadata, 0);
+    log.appendRaw(schemaEntry, Pose2d.struct.getSchema().getBytes(StandardCharsets.UTF_8), 0);
+    ByteBuffer pose = ByteBuffer.allocate(Pose2d.struct.getSize()).order(ByteOrder.LITTLE_ENDIAN);
+
+    double[] array = new double[8];
+    for (int cycle = 0; cycle < cycles; cycle++) {
+      long timestamp = 20000L * cycle;
+      log.appendInteger(timestampEntry, timestamp, timestamp);
+      for (int i = 0; i < SIGNALS; i++) {
+        log.appendDouble(signalEntries[i], Math.sin(cycle * 0.01 + i), timestamp);
+      }
+      for (int i = 0; i < ARRAYS; i++) {
+        for (int j = 0; j < array.length; j++) {
+          array[j] = cycle + i + j * 0.5;
+        }
+        log.appendDoubleArray(arrayEntries[i], array, timestamp);
+      }
+      pose.clear();
+      Pose2d.struct.pack(pose, new Pose2d(cycle * 0.01, 2.0, Rotation2d.fromDegrees(cycle)));
+      log.appendRaw(poseEntry, pose.array(), timestamp);
+      if (cycle % 10 == 0) {
+        log.appendRaw(rawEntry, new byte[] {(byte) cycle, 0, (byte) (cycle >> 8)}, timestamp);
+      }
+      if (cycle % 500 == 0) {
+        log.appendBoolean(enabledEntry, cycle % 1000 == 0, timestamp);
+        log.appendString(modeEntry, "Mode " + cycle / 500, timestamp);
+      }
+    }
+    log.close();
+    return directory.resolve(fileName);
+  }
+}